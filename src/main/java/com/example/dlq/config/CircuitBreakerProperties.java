@@ -0,0 +1,41 @@
+package com.example.dlq.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "circuit-breaker")
+public class CircuitBreakerProperties {
+
+    private boolean enabled = true;
+
+    // Number of most recent calls the failure rate is computed over
+    private int slidingWindowSize = 50;
+
+    // Calls required in the window before the breaker may open
+    private int minimumCalls = 20;
+
+    private int failureRateThreshold = 50;
+
+    private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+
+    private int permittedCallsInHalfOpenState = 5;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getSlidingWindowSize() { return slidingWindowSize; }
+    public void setSlidingWindowSize(int slidingWindowSize) { this.slidingWindowSize = slidingWindowSize; }
+
+    public int getMinimumCalls() { return minimumCalls; }
+    public void setMinimumCalls(int minimumCalls) { this.minimumCalls = minimumCalls; }
+
+    public int getFailureRateThreshold() { return failureRateThreshold; }
+    public void setFailureRateThreshold(int failureRateThreshold) { this.failureRateThreshold = failureRateThreshold; }
+
+    public Duration getWaitDurationInOpenState() { return waitDurationInOpenState; }
+    public void setWaitDurationInOpenState(Duration waitDurationInOpenState) { this.waitDurationInOpenState = waitDurationInOpenState; }
+
+    public int getPermittedCallsInHalfOpenState() { return permittedCallsInHalfOpenState; }
+    public void setPermittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) { this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState; }
+}
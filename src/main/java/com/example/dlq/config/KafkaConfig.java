@@ -1,14 +1,21 @@
 package com.example.dlq.config;
 
+import com.example.dlq.service.RetryPolicy;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
@@ -16,11 +23,14 @@ import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.transaction.KafkaTransactionManager;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
 @EnableKafka
+@EnableConfigurationProperties({RetryProperties.class, CircuitBreakerProperties.class, RetentionProperties.class})
 public class KafkaConfig {
 
     @Value("${spring.kafka.bootstrap-servers}")
@@ -29,17 +39,20 @@ public class KafkaConfig {
     @Value("${kafka.topics.main}")
     private String mainTopic;
 
-    @Value("${kafka.topics.retry-5s}")
-    private String retry5sTopic;
+    @Value("${kafka.topics.dlq}")
+    private String dlqTopic;
 
-    @Value("${kafka.topics.retry-30s}")
-    private String retry30sTopic;
+    @Value("${kafka.consumer.batch.max-poll-records:500}")
+    private int batchMaxPollRecords;
 
-    @Value("${kafka.topics.retry-5m}")
-    private String retry5mTopic;
+    @Value("${kafka.consumer.ack-tracker.commit-interval:1s}")
+    private Duration ackTrackerCommitInterval;
 
-    @Value("${kafka.topics.dlq}")
-    private String dlqTopic;
+    private final Environment environment;
+
+    public KafkaConfig(Environment environment) {
+        this.environment = environment;
+    }
 
     @Bean
     public KafkaAdmin kafkaAdmin() {
@@ -57,27 +70,13 @@ public class KafkaConfig {
     }
 
     @Bean
-    public NewTopic retry5sTopic() {
-        return TopicBuilder.name(retry5sTopic)
-                .partitions(3)
-                .replicas(1)
-                .build();
-    }
-
-    @Bean
-    public NewTopic retry30sTopic() {
-        return TopicBuilder.name(retry30sTopic)
-                .partitions(3)
-                .replicas(1)
-                .build();
-    }
-
-    @Bean
-    public NewTopic retry5mTopic() {
-        return TopicBuilder.name(retry5mTopic)
-                .partitions(3)
-                .replicas(1)
-                .build();
+    public KafkaAdmin.NewTopics retryTopics(RetryPolicy retryPolicy) {
+        return new KafkaAdmin.NewTopics(Arrays.stream(retryPolicy.topicNames())
+                .map(topic -> TopicBuilder.name(topic)
+                        .partitions(retryPolicy.getTopicPartitions())
+                        .replicas(1)
+                        .build())
+                .toArray(NewTopic[]::new));
     }
 
     @Bean
@@ -88,12 +87,16 @@ public class KafkaConfig {
                 .build();
     }
 
+    /**
+     * Values are produced as bytes: new orders are encoded by {@code OrderProducer}, and
+     * retry, DLQ and delay-wheel records are forwarded with the bytes they were received with.
+     */
     @Bean
-    public ProducerFactory<String, String> producerFactory() {
+    public ProducerFactory<String, byte[]> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
         configProps.put(ProducerConfig.ACKS_CONFIG, "all");
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
         configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
@@ -102,22 +105,29 @@ public class KafkaConfig {
     }
 
     @Bean
-    public KafkaTemplate<String, String> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public KafkaTemplate<String, byte[]> kafkaTemplate() {
+        KafkaTemplate<String, byte[]> template = new KafkaTemplate<>(producerFactory());
+        // Sends outside a Kafka transaction use an idempotent, non-transactional producer
+        template.setAllowNonTransactional(true);
+        return template;
     }
 
     @Bean
-    public KafkaTransactionManager<String, String> kafkaTransactionManager() {
+    public KafkaTransactionManager<String, byte[]> kafkaTransactionManager() {
         return new KafkaTransactionManager<>(producerFactory());
     }
 
+    /**
+     * Values are consumed as raw bytes and parsed only by the listeners that need the event,
+     * straight from the bytes and without an intermediate String.
+     */
     @Bean
-    public ConsumerFactory<String, String> consumerFactory() {
+    public ConsumerFactory<String, byte[]> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, "orders-consumer-group");
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
         props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
@@ -125,12 +135,49 @@ public class KafkaConfig {
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, String> factory = 
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> kafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = 
             new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        // Idle events let the offset trackers commit while no records arrive
+        factory.getContainerProperties().setIdleEventInterval(ackTrackerCommitInterval.toMillis());
         factory.setConcurrency(3);
+        configureListenerThreads(factory);
         return factory;
     }
+
+    /**
+     * Batch container for {@code kafka.consumer.mode=batch} and the DLQ consumer. The
+     * listeners commit their own offsets with the consumer, so the container never commits
+     * on their behalf.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> batchKafkaListenerContainerFactory() {
+        Map<String, Object> props = new HashMap<>(consumerFactory().getConfigurationProperties());
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(props));
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setIdleEventInterval(ackTrackerCommitInterval.toMillis());
+        factory.setConcurrency(3);
+        configureListenerThreads(factory);
+        return factory;
+    }
+
+    /**
+     * With {@code spring.threads.virtual.enabled=true} on Java 21+, listener consumer threads
+     * are virtual threads, like the Tomcat request threads. Otherwise the container default
+     * (platform threads) is kept.
+     */
+    private void configureListenerThreads(ConcurrentKafkaListenerContainerFactory<String, byte[]> factory) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("kafka-listener-");
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
+    }
 }
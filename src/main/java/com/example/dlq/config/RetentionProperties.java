@@ -0,0 +1,81 @@
+package com.example.dlq.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "dlq.retention")
+public class RetentionProperties {
+
+    // Scheduled purges; off by default, as purged rows are not archived unless configured
+    private boolean enabled = false;
+
+    // Default policy; either limit may be absent
+    private Duration ttl = Duration.ofDays(7);
+    private Long maxRows;
+
+    // Per original topic overrides of the default policy
+    private Map<String, Policy> topics = new HashMap<>();
+
+    // Rows deleted per transaction
+    private int chunkSize = 1000;
+
+    private Archive archive = new Archive();
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Duration getTtl() { return ttl; }
+    public void setTtl(Duration ttl) { this.ttl = ttl; }
+
+    public Long getMaxRows() { return maxRows; }
+    public void setMaxRows(Long maxRows) { this.maxRows = maxRows; }
+
+    public Map<String, Policy> getTopics() { return topics; }
+    public void setTopics(Map<String, Policy> topics) { this.topics = topics; }
+
+    public int getChunkSize() { return chunkSize; }
+    public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+
+    public Archive getArchive() { return archive; }
+    public void setArchive(Archive archive) { this.archive = archive; }
+
+    /**
+     * The policy for a topic: its override where set, otherwise the default.
+     */
+    public Policy policyFor(String originalTopic) {
+        Policy override = topics.get(originalTopic);
+        Policy policy = new Policy();
+        policy.setTtl(override != null && override.getTtl() != null ? override.getTtl() : ttl);
+        policy.setMaxRows(override != null && override.getMaxRows() != null ? override.getMaxRows() : maxRows);
+        return policy;
+    }
+
+    public static class Policy {
+
+        private Duration ttl;
+        private Long maxRows;
+
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+
+        public Long getMaxRows() { return maxRows; }
+        public void setMaxRows(Long maxRows) { this.maxRows = maxRows; }
+    }
+
+    public static class Archive {
+
+        private boolean enabled = false;
+
+        // Purged rows are written here as gzipped JSON lines before they are deleted
+        private String directory = "dlq-archive";
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public String getDirectory() { return directory; }
+        public void setDirectory(String directory) { this.directory = directory; }
+    }
+}
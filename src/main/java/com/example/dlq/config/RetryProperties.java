@@ -0,0 +1,126 @@
+package com.example.dlq.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+@ConfigurationProperties(prefix = "retry")
+public class RetryProperties {
+
+    public enum Jitter {
+        NONE,           // Exact tier delay
+        FULL,           // Uniform in [0, delay]
+        DECORRELATED    // Uniform in [delay, 3 x previous delay], capped at maxDelay
+    }
+
+    public enum HeaderFormat {
+        BINARY,         // Fixed-width binary numbers and epoch-millis timestamps
+        TEXT            // Decimal and ISO-8601 strings, readable by older consumers
+    }
+
+    private int maxAttempts = 3;
+
+    // One retry tier (and topic) per delay; attempts beyond the ladder reuse the last tier
+    private List<Duration> delays = new ArrayList<>(List.of(
+        Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofMinutes(5)
+    ));
+
+    private Jitter jitter = Jitter.FULL;
+
+    private Duration maxDelay = Duration.ofMinutes(15);
+
+    private int topicPartitions = 3;
+
+    private Budget budget = new Budget();
+
+    private HeaderFormat headerFormat = HeaderFormat.BINARY;
+
+    private Classification classification = new Classification();
+
+    public static class Budget {
+
+        private boolean enabled = true;
+
+        // Retry tokens earned per successfully processed record
+        private double ratio = 0.2;
+
+        // Retries always allowed per second, so a quiet system can still retry
+        private double minPerSecond = 1.0;
+
+        private double maxTokens = 100.0;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public double getRatio() { return ratio; }
+        public void setRatio(double ratio) { this.ratio = ratio; }
+
+        public double getMinPerSecond() { return minPerSecond; }
+        public void setMinPerSecond(double minPerSecond) { this.minPerSecond = minPerSecond; }
+
+        public double getMaxTokens() { return maxTokens; }
+        public void setMaxTokens(double maxTokens) { this.maxTokens = maxTokens; }
+    }
+
+    public static class Classification {
+
+        // Types (and their subtypes) that are always retried
+        private List<Class<? extends Throwable>> transientTypes = new ArrayList<>(List.of(
+            IOException.class, TimeoutException.class
+        ));
+
+        // Types that go to the DLQ without retrying
+        private List<Class<? extends Throwable>> permanentTypes = new ArrayList<>(List.of(
+            IllegalArgumentException.class, IllegalStateException.class, UnsupportedOperationException.class
+        ));
+
+        // Case-insensitive message keywords that make any other error permanent
+        private List<String> permanentKeywords = new ArrayList<>(List.of(
+            "validation", "invalid", "malformed", "schema", "format",
+            "insufficient", "not found", "duplicate", "conflict", "forbidden"
+        ));
+
+        // Causes examined when the outer exceptions give no verdict
+        private int maxCauseDepth = 8;
+
+        public List<Class<? extends Throwable>> getTransientTypes() { return transientTypes; }
+        public void setTransientTypes(List<Class<? extends Throwable>> transientTypes) { this.transientTypes = transientTypes; }
+
+        public List<Class<? extends Throwable>> getPermanentTypes() { return permanentTypes; }
+        public void setPermanentTypes(List<Class<? extends Throwable>> permanentTypes) { this.permanentTypes = permanentTypes; }
+
+        public List<String> getPermanentKeywords() { return permanentKeywords; }
+        public void setPermanentKeywords(List<String> permanentKeywords) { this.permanentKeywords = permanentKeywords; }
+
+        public int getMaxCauseDepth() { return maxCauseDepth; }
+        public void setMaxCauseDepth(int maxCauseDepth) { this.maxCauseDepth = maxCauseDepth; }
+    }
+
+    public int getMaxAttempts() { return maxAttempts; }
+    public void setMaxAttempts(int maxAttempts) { this.maxAttempts = maxAttempts; }
+
+    public List<Duration> getDelays() { return delays; }
+    public void setDelays(List<Duration> delays) { this.delays = delays; }
+
+    public Jitter getJitter() { return jitter; }
+    public void setJitter(Jitter jitter) { this.jitter = jitter; }
+
+    public Duration getMaxDelay() { return maxDelay; }
+    public void setMaxDelay(Duration maxDelay) { this.maxDelay = maxDelay; }
+
+    public int getTopicPartitions() { return topicPartitions; }
+    public void setTopicPartitions(int topicPartitions) { this.topicPartitions = topicPartitions; }
+
+    public Budget getBudget() { return budget; }
+    public void setBudget(Budget budget) { this.budget = budget; }
+
+    public HeaderFormat getHeaderFormat() { return headerFormat; }
+    public void setHeaderFormat(HeaderFormat headerFormat) { this.headerFormat = headerFormat; }
+
+    public Classification getClassification() { return classification; }
+    public void setClassification(Classification classification) { this.classification = classification; }
+}
@@ -0,0 +1,24 @@
+package com.example.dlq.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Declaring {@code kafkaTransactionManager} makes Spring Boot back off from its JPA
+ * transaction manager, so it is declared here. Plain {@code @Transactional} and the
+ * repositories use JPA; Kafka transactions are requested with
+ * {@code @Transactional("kafkaTransactionManager")}.
+ */
+@Configuration
+public class TransactionConfig {
+
+    @Bean
+    @Primary
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.dlq.consumer;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Offsets to commit for a polled batch: per partition, everything up to the first record
+ * that did not complete. Partitions with an incomplete record are rewound to it so it and
+ * everything after it is redelivered.
+ */
+class BatchCommitPlan {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchCommitPlan.class);
+
+    private final Map<TopicPartition, OffsetAndMetadata> commits = new HashMap<>();
+    private final Map<TopicPartition, Long> rewinds = new HashMap<>();
+
+    BatchCommitPlan(List<? extends ConsumerRecord<?, ?>> records, Predicate<ConsumerRecord<?, ?>> completed) {
+        for (ConsumerRecord<?, ?> record : records) {
+            TopicPartition topicPartition = new TopicPartition(record.topic(), record.partition());
+            if (rewinds.containsKey(topicPartition)) {
+                continue;
+            }
+            if (completed.test(record)) {
+                commits.put(topicPartition, new OffsetAndMetadata(record.offset() + 1));
+            } else {
+                rewinds.put(topicPartition, record.offset());
+            }
+        }
+    }
+
+    Map<TopicPartition, OffsetAndMetadata> getCommits() {
+        return commits;
+    }
+
+    Map<TopicPartition, Long> getRewinds() {
+        return rewinds;
+    }
+
+    /**
+     * Commits the contiguous completed prefix and rewinds incomplete partitions.
+     * Must be called on the consumer thread.
+     */
+    void apply(Consumer<?, ?> consumer) {
+        if (!commits.isEmpty()) {
+            consumer.commitSync(commits);
+        }
+        rewind(consumer);
+    }
+
+    /**
+     * Rewinds incomplete partitions only, for when the commits went out with a transaction.
+     * Must be called on the consumer thread.
+     */
+    void rewind(Consumer<?, ?> consumer) {
+        rewinds.forEach(consumer::seek);
+        if (!rewinds.isEmpty()) {
+            logger.warn("Rewound partitions with incomplete records: {}", rewinds);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.dlq.consumer;
+
+import com.example.dlq.model.OrderEvent;
+import com.example.dlq.model.RetryHeaders;
+import com.example.dlq.service.DownstreamCircuitBreaker;
+import com.example.dlq.service.ErrorClassifier;
+import com.example.dlq.service.OrderProcessingService;
+import com.example.dlq.service.RetryService;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Batch variant of {@link OrderConsumer}: processes a whole poll, routes all of its failed
+ * records to retry/DLQ in one Kafka transaction and commits once per batch.
+ * <p>
+ * In {@code parallel} mode the records of a poll are spread over a {@link KeyOrderedExecutor}
+ * instead of being processed one after the other.
+ * <p>
+ * With {@code kafka.consumer.exactly-once} the retry/DLQ sends and the offset commit of a
+ * batch go out in a single Kafka transaction ({@code sendOffsetsToTransaction}) instead of
+ * a transaction for the sends followed by {@code commitSync}.
+ */
+@Component
+@ConditionalOnExpression("'${kafka.consumer.mode:record}' matches 'batch|parallel'")
+public class BatchOrderConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchOrderConsumer.class);
+
+    private static final long SEND_TIMEOUT_SECONDS = 30;
+    private static final long HALF_OPEN_BACKOFF_MS = 1000;
+
+    private final OrderProcessingService orderProcessingService;
+    private final RetryService retryService;
+    private final ErrorClassifier errorClassifier;
+    private final OrderEventReader orderEventReader;
+    private final DownstreamCircuitBreaker circuitBreaker;
+    private final ListenerContainerPauser containerPauser;
+    private final TransactionTemplate kafkaTransactionTemplate;
+    private final KeyOrderedExecutor laneExecutor;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Value("${retry.max-attempts}")
+    private int maxAttempts;
+
+    @Value("${kafka.consumer.exactly-once:false}")
+    private boolean exactlyOnce;
+
+    public BatchOrderConsumer(OrderProcessingService orderProcessingService,
+                             RetryService retryService,
+                             ErrorClassifier errorClassifier,
+                             OrderEventReader orderEventReader,
+                             DownstreamCircuitBreaker circuitBreaker,
+                             ListenerContainerPauser containerPauser,
+                             KafkaTransactionManager<String, byte[]> kafkaTransactionManager,
+                             ObjectProvider<KeyOrderedExecutor> laneExecutor,
+                             KafkaTemplate<String, byte[]> kafkaTemplate) {
+        this.orderProcessingService = orderProcessingService;
+        this.retryService = retryService;
+        this.errorClassifier = errorClassifier;
+        this.orderEventReader = orderEventReader;
+        this.circuitBreaker = circuitBreaker;
+        this.containerPauser = containerPauser;
+        this.kafkaTransactionTemplate = new TransactionTemplate(kafkaTransactionManager);
+        this.laneExecutor = laneExecutor.getIfAvailable();
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    @KafkaListener(id = OrderConsumer.ORDER_LISTENER_ID, topics = "${kafka.topics.main}",
+                   groupId = "orders-consumer-group", containerFactory = "batchKafkaListenerContainerFactory")
+    public void handleOrderBatch(List<ConsumerRecord<String, byte[]>> records, Consumer<?, ?> consumer) {
+        logger.info("Received order batch: size={}", records.size());
+
+        Set<ConsumerRecord<?, ?>> completed = ConcurrentHashMap.newKeySet();
+        Map<ConsumerRecord<String, byte[]>, Exception> failures = new ConcurrentHashMap<>();
+
+        boolean rejected = laneExecutor != null
+            ? processInLanes(records, completed, failures)
+            : processInOrder(records, completed, failures);
+        if (rejected) {
+            // The rest of the batch is left unprocessed; it is rewound below
+            pauseWhileCircuitOpen();
+        }
+
+        // Route in batch order so retries of the same key keep their relative order
+        Map<ConsumerRecord<String, byte[]>, Exception> orderedFailures = new LinkedHashMap<>();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            Exception error = failures.get(record);
+            if (error != null) {
+                orderedFailures.put(record, error);
+            }
+        }
+        if (exactlyOnce) {
+            commitExactlyOnce(records, completed, orderedFailures, consumer);
+            return;
+        }
+        completed.addAll(routeFailures(orderedFailures));
+
+        BatchCommitPlan plan = new BatchCommitPlan(records, completed::contains);
+        plan.apply(consumer);
+        logger.info("Committed order batch: processed={}, routed={}, commits={}",
+                   records.size(), failures.size(), plan.getCommits());
+    }
+
+    /**
+     * Routes the failed records and sends the batch offsets in one transaction, so either
+     * both become visible or neither does. If the transaction aborts, the whole batch is
+     * rewound.
+     */
+    private void commitExactlyOnce(List<ConsumerRecord<String, byte[]>> records,
+                                   Set<ConsumerRecord<?, ?>> completed,
+                                   Map<ConsumerRecord<String, byte[]>, Exception> failures,
+                                   Consumer<?, ?> consumer) {
+        completed.addAll(failures.keySet());
+        BatchCommitPlan plan = new BatchCommitPlan(records, completed::contains);
+        try {
+            kafkaTransactionTemplate.executeWithoutResult(status -> {
+                failures.forEach(this::route);
+                if (!plan.getCommits().isEmpty()) {
+                    kafkaTemplate.sendOffsetsToTransaction(plan.getCommits(), consumer.groupMetadata());
+                }
+            });
+        } catch (Exception e) {
+            logger.error("Order batch transaction aborted, rewinding {} records: {}",
+                        records.size(), e.getMessage(), e);
+            new BatchCommitPlan(records, record -> false).rewind(consumer);
+            return;
+        }
+        plan.rewind(consumer);
+        logger.info("Committed order batch transaction: processed={}, routed={}, commits={}",
+                   records.size(), failures.size(), plan.getCommits());
+    }
+
+    private boolean processInOrder(List<ConsumerRecord<String, byte[]>> records,
+                                   Set<ConsumerRecord<?, ?>> completed,
+                                   Map<ConsumerRecord<String, byte[]>, Exception> failures) {
+        for (ConsumerRecord<String, byte[]> record : records) {
+            if (!processRecord(record, completed, failures)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fans the batch out to lanes keyed by orderId (or by partition for records without a
+     * key), so records of one key stay in order while different keys run concurrently.
+     * Returns once every record has been processed or skipped.
+     */
+    private boolean processInLanes(List<ConsumerRecord<String, byte[]>> records,
+                                   Set<ConsumerRecord<?, ?>> completed,
+                                   Map<ConsumerRecord<String, byte[]>, Exception> failures) {
+        AtomicBoolean rejected = new AtomicBoolean();
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, byte[]> record = records.get(i);
+            Object laneKey = record.key() != null ? record.key() : record.partition();
+            tasks[i] = laneExecutor.submit(laneKey, () -> {
+                // Once the breaker rejects, the remaining records of every lane are skipped,
+                // so no key is processed ahead of its own record that will be redelivered
+                if (!rejected.get() && !processRecord(record, completed, failures)) {
+                    rejected.set(true);
+                }
+            });
+        }
+        CompletableFuture.allOf(tasks).join();
+        return rejected.get();
+    }
+
+    /**
+     * Processes one record, returning false if the circuit breaker rejected it.
+     */
+    private boolean processRecord(ConsumerRecord<String, byte[]> record,
+                                  Set<ConsumerRecord<?, ?>> completed,
+                                  Map<ConsumerRecord<String, byte[]>, Exception> failures) {
+        boolean permitted = false;
+        try {
+            OrderEvent orderEvent = orderEventReader.read(record);
+
+            permitted = circuitBreaker.tryAcquirePermission();
+            if (!permitted) {
+                return false;
+            }
+
+            orderProcessingService.processOrder(orderEvent);
+            circuitBreaker.onSuccess();
+            retryService.recordSuccess();
+            completed.add(record);
+
+        } catch (Exception e) {
+            logger.error("Error processing order event: key={}, error={}", record.key(), e.getMessage(), e);
+            if (permitted) {
+                circuitBreaker.onError(errorClassifier.classifyError(e));
+            }
+            failures.put(record, e);
+        }
+        return true;
+    }
+
+    /**
+     * Sends every failed record of the batch to retry/DLQ in one transaction and returns the
+     * records whose send succeeded.
+     */
+    private Set<ConsumerRecord<?, ?>> routeFailures(Map<ConsumerRecord<String, byte[]>, Exception> failures) {
+        Set<ConsumerRecord<?, ?>> routed = new HashSet<>();
+        if (failures.isEmpty()) {
+            return routed;
+        }
+
+        Map<ConsumerRecord<?, ?>, CompletableFuture<?>> sends = new LinkedHashMap<>();
+        try {
+            kafkaTransactionTemplate.executeWithoutResult(status ->
+                failures.forEach((record, error) -> sends.put(record, route(record, error))));
+        } catch (Exception e) {
+            logger.error("Failed to route {} records to retry/DLQ: {}", failures.size(), e.getMessage(), e);
+            return routed;
+        }
+
+        sends.forEach((record, send) -> {
+            try {
+                send.get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                routed.add(record);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.error("Failed to route record: key={}, error={}", record.key(), e.getMessage());
+            }
+        });
+        return routed;
+    }
+
+    private CompletableFuture<?> route(ConsumerRecord<String, byte[]> record, Exception error) {
+        int currentRetryCount = RetryHeaders.getRetryCount(record.headers());
+        if (errorClassifier.shouldRetry(error, currentRetryCount, maxAttempts)) {
+            return retryService.sendToRetry(record, currentRetryCount, error,
+                RetryHeaders.getRetryDelay(record.headers()));
+        }
+        return retryService.sendToDlq(record, currentRetryCount, error);
+    }
+
+    private void pauseWhileCircuitOpen() {
+        Instant resumeAt = circuitBreaker.getState() == DownstreamCircuitBreaker.State.OPEN
+            ? circuitBreaker.getOpenUntil()
+            : Instant.now().plusMillis(HALF_OPEN_BACKOFF_MS);
+        logger.warn("Circuit {}, pausing order consumption until {}", circuitBreaker.getState(), resumeAt);
+        containerPauser.pauseUntil(OrderConsumer.ORDER_LISTENER_ID, resumeAt);
+    }
+}
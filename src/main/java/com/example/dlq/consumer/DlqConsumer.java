@@ -2,72 +2,158 @@ package com.example.dlq.consumer;
 
 import com.example.dlq.entity.DlqMessage;
 import com.example.dlq.model.RetryHeaders;
-import com.example.dlq.repository.DlqMessageRepository;
+import com.example.dlq.service.StackTraceFingerprinter;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerSeekAware;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 @Component
-public class DlqConsumer {
+public class DlqConsumer implements ConsumerSeekAware {
 
     private static final Logger logger = LoggerFactory.getLogger(DlqConsumer.class);
 
-    private final DlqMessageRepository dlqMessageRepository;
+    static final String DLQ_LISTENER_ID = "dlq-listener";
 
-    public DlqConsumer(DlqMessageRepository dlqMessageRepository) {
-        this.dlqMessageRepository = dlqMessageRepository;
+    private final StackTraceFingerprinter stackTraceFingerprinter;
+    private final OrderEventReader orderEventReader;
+    private final DlqWriteBehindBuffer writeBehindBuffer;
+    private final ListenerContainerPauser containerPauser;
+    private final OffsetCommitTracker offsetTracker;
+
+    public DlqConsumer(StackTraceFingerprinter stackTraceFingerprinter,
+                      OrderEventReader orderEventReader,
+                      DlqWriteBehindBuffer writeBehindBuffer,
+                      ListenerContainerPauser containerPauser,
+                      @Value("${kafka.consumer.ack-tracker.commit-threshold:100}") int commitThreshold,
+                      @Value("${kafka.consumer.ack-tracker.commit-interval:1s}") Duration commitInterval) {
+        this.stackTraceFingerprinter = stackTraceFingerprinter;
+        this.orderEventReader = orderEventReader;
+        this.writeBehindBuffer = writeBehindBuffer;
+        this.containerPauser = containerPauser;
+        this.offsetTracker = new OffsetCommitTracker(DLQ_LISTENER_ID, commitThreshold, commitInterval);
     }
 
-    @KafkaListener(topics = "${kafka.topics.dlq}", groupId = "dlq-consumer-group")
-    @Transactional
-    public void handleDlqMessage(ConsumerRecord<String, String> record,
-                                Acknowledgment acknowledgment,
-                                @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-                                @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
-                                @Header(KafkaHeaders.OFFSET) long offset) {
-        
-        String key = record.key();
-        String value = record.value();
-        
-        logger.warn("Received DLQ message: key={}, topic={}, partition={}, offset={}", 
-                   key, topic, partition, offset);
+    /**
+     * Hands each record to the {@link DlqWriteBehindBuffer} without waiting for the database.
+     * A record's offset becomes committable once the group it was stored with is committed;
+     * records already stored (same original topic, partition and offset) are skipped, so
+     * redelivered records are harmless.
+     * <p>
+     * When the buffer is full, the partition is rewound to the first record that did not fit
+     * and the container is paused until the buffer has drained to half its capacity.
+     */
+    @KafkaListener(id = DLQ_LISTENER_ID, topics = "${kafka.topics.dlq}", groupId = "dlq-consumer-group",
+                   containerFactory = "batchKafkaListenerContainerFactory")
+    public void handleDlqBatch(List<ConsumerRecord<String, byte[]>> records, Consumer<?, ?> consumer) {
+        logger.warn("Received DLQ batch: size={}", records.size());
+
+        // Offsets are committed by the tracker, never past a record that is not yet stored
+        offsetTracker.maybeCommit(consumer);
+
+        Set<TopicPartition> rewound = new HashSet<>();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            TopicPartition topicPartition = new TopicPartition(record.topic(), record.partition());
+            long offset = record.offset();
+            if (rewound.contains(topicPartition)) {
+                continue;
+            }
+            offsetTracker.register(record);
+
+            DlqMessage message = toDlqMessage(record);
+            if (message == null) {
+                offsetTracker.complete(record);
+            } else if (!writeBehindBuffer.offer(message,
+                    () -> offsetTracker.complete(topicPartition, offset))) {
+                // The record stays pending until it is redelivered and stored
+                consumer.seek(topicPartition, offset);
+                rewound.add(topicPartition);
+            }
+        }
+
+        if (!rewound.isEmpty()) {
+            logger.warn("DLQ write-behind buffer full, pausing DLQ consumption: rewound={}", rewound);
+            containerPauser.pause(DLQ_LISTENER_ID);
+            writeBehindBuffer.whenDrained(() -> containerPauser.resume(DLQ_LISTENER_ID));
+        }
+    }
 
+    /**
+     * Commits stored offsets while no records arrive (or the container is paused); published
+     * on the consumer thread.
+     */
+    @EventListener(condition = "event.listenerId.startsWith('" + DLQ_LISTENER_ID + "')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        offsetTracker.maybeCommit(event.getConsumer());
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        offsetTracker.revoke(partitions);
+    }
+
+    private DlqMessage toDlqMessage(ConsumerRecord<String, byte[]> record) {
+        String key = record.key();
         try {
-            // Extract metadata from headers
-            String originalTopic = RetryHeaders.getOriginalTopic(record.headers());
-            int originalPartition = RetryHeaders.getOriginalPartition(record.headers());
-            long originalOffset = RetryHeaders.getOriginalOffset(record.headers());
+            // Stored as JSON, so binary events stay readable and are requeued as JSON
+            String value = orderEventReader.readAsJson(record);
+            if (key == null || value == null) {
+                logger.error("Skipping DLQ record without key or value: partition={}, offset={}",
+                            record.partition(), record.offset());
+                return null;
+            }
+
+            // Extract metadata from headers; records without an origin are identified by their DLQ position
+            String originalTopic = record.topic();
+            int originalPartition = record.partition();
+            long originalOffset = record.offset();
+            if (record.headers().lastHeader(RetryHeaders.ORIGINAL_TOPIC) != null) {
+                originalTopic = RetryHeaders.getOriginalTopic(record.headers());
+                originalPartition = RetryHeaders.getOriginalPartition(record.headers());
+                originalOffset = RetryHeaders.getOriginalOffset(record.headers());
+            }
             int retryCount = RetryHeaders.getRetryCount(record.headers());
             Instant firstSeenTs = RetryHeaders.getFirstSeenTimestamp(record.headers());
             String lastError = RetryHeaders.getLastError(record.headers());
-            byte[] stacktraceBytes = record.headers().lastHeader(RetryHeaders.STACKTRACE) != null ? 
-                record.headers().lastHeader(RetryHeaders.STACKTRACE).value() : new byte[0];
-            String stacktrace = new String(stacktraceBytes);
 
-            // Create and save DLQ message entity
             DlqMessage dlqMessage = new DlqMessage(
                 key, value, originalTopic, originalPartition, originalOffset,
-                retryCount, firstSeenTs, lastError, stacktrace
+                retryCount, firstSeenTs, lastError, null
             );
+            dlqMessage.setStackTraceFingerprint(getStackTraceFingerprint(record));
+            return dlqMessage;
 
-            dlqMessageRepository.save(dlqMessage);
-            
-            logger.info("Saved DLQ message to database: id={}, key={}", dlqMessage.getId(), key);
-            
-            // Acknowledge the message
-            acknowledgment.acknowledge();
-            
         } catch (Exception e) {
-            logger.error("Error processing DLQ message: key={}, error={}", key, e.getMessage(), e);
-            // Don't acknowledge - let it retry
+            logger.error("Skipping unreadable DLQ record: key={}, partition={}, offset={}, error={}",
+                        key, record.partition(), record.offset(), e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Stack traces arrive as a fingerprint; records routed by older versions still carry
+     * the trace text, which is fingerprinted here so it is stored only once as well.
+     */
+    private String getStackTraceFingerprint(ConsumerRecord<String, byte[]> record) {
+        String fingerprint = RetryHeaders.getStacktraceFingerprint(record.headers());
+        if (fingerprint != null) {
+            return fingerprint;
         }
+        String legacyTrace = RetryHeaders.getStacktrace(record.headers());
+        return legacyTrace.isEmpty() ? null : stackTraceFingerprinter.fingerprint(legacyTrace);
     }
 }
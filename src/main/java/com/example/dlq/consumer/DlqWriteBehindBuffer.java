@@ -0,0 +1,224 @@
+package com.example.dlq.consumer;
+
+import com.example.dlq.entity.DlqMessage;
+import com.example.dlq.repository.DlqMessageRepository;
+import com.example.dlq.service.DlqRateTracker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bounded buffer between the DLQ listener and the database. The listener offers parsed
+ * messages without blocking; a writer thread stores them in groups of up to
+ * {@code flushSize}, or whatever has arrived {@code flushInterval} after the first message
+ * of a group, and runs each message's callback once its group is committed.
+ * <p>
+ * A group that cannot be stored is retried after {@code retryBackoff} until it succeeds,
+ * while the buffer fills up and the listener backs off. On shutdown the buffer stops after
+ * the listener containers and makes one last attempt to store what is left; anything not
+ * stored is redelivered, as its offsets were never committed.
+ */
+@Component
+class DlqWriteBehindBuffer implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(DlqWriteBehindBuffer.class);
+
+    // Longest wait between checks for a stop request
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // Time allowed on shutdown for the last group to be stored
+    private static final long SHUTDOWN_GRACE_MS = 5000;
+
+    private record Entry(DlqMessage message, Runnable onStored) {
+    }
+
+    private final DlqMessageRepository dlqMessageRepository;
+    private final DlqRateTracker rateTracker;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Entry> queue;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+    private final long retryBackoffMs;
+    private final int resumeDepth;
+    private final Timer flushTimer;
+    private final AtomicReference<Runnable> drainedCallback = new AtomicReference<>();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    DlqWriteBehindBuffer(DlqMessageRepository dlqMessageRepository,
+                         DlqRateTracker rateTracker,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${dlq.write-behind.capacity:10000}") int capacity,
+                         @Value("${dlq.write-behind.flush-size:500}") int flushSize,
+                         @Value("${dlq.write-behind.flush-interval:200ms}") Duration flushInterval,
+                         @Value("${dlq.write-behind.retry-backoff:5s}") Duration retryBackoff) {
+        this.dlqMessageRepository = dlqMessageRepository;
+        this.rateTracker = rateTracker;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.flushSize = flushSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.retryBackoffMs = retryBackoff.toMillis();
+        this.resumeDepth = capacity / 2;
+        this.flushTimer = Timer.builder("dlq.buffer.flush")
+                .description("Time taken to store a group of buffered DLQ messages")
+                .register(meterRegistry);
+        Gauge.builder("dlq.buffer.depth", queue, BlockingQueue::size)
+                .description("DLQ messages buffered and not yet stored")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Buffers the message, or returns {@code false} at once if the buffer is full.
+     * {@code onStored} runs on the writer thread after the message is committed.
+     */
+    boolean offer(DlqMessage message, Runnable onStored) {
+        return queue.offer(new Entry(message, onStored));
+    }
+
+    /**
+     * Runs the callback once, as soon as the buffer is at most half full.
+     */
+    void whenDrained(Runnable callback) {
+        drainedCallback.set(callback);
+        signalIfDrained();
+    }
+
+    int getDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer = new Thread(this::write, "dlq-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(retryBackoffMs + SHUTDOWN_GRACE_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stops after the listener containers (Integer.MAX_VALUE - 100), which stop feeding it first
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 200;
+    }
+
+    private void write() {
+        List<Entry> group = new ArrayList<>(flushSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(IDLE_POLL_NANOS, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    group.add(first);
+                    fill(group, System.nanoTime() + flushIntervalNanos);
+                    store(group);
+                    group.clear();
+                }
+                signalIfDrained();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("DLQ writer error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void fill(List<Entry> group, long deadline) throws InterruptedException {
+        while (group.size() < flushSize) {
+            queue.drainTo(group, flushSize - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() >= flushSize || remaining <= 0 || !running) {
+                return;
+            }
+            Entry next = queue.poll(Math.min(remaining, IDLE_POLL_NANOS), TimeUnit.NANOSECONDS);
+            if (next != null) {
+                group.add(next);
+            }
+        }
+    }
+
+    private void store(List<Entry> group) throws InterruptedException {
+        List<DlqMessage> messages = new ArrayList<>(group.size());
+        group.forEach(entry -> messages.add(entry.message()));
+
+        while (true) {
+            long start = System.nanoTime();
+            try {
+                Integer inserted = transactionTemplate.execute(status ->
+                    dlqMessageRepository.insertIgnoringDuplicates(messages));
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                logger.info("Saved DLQ messages to database: inserted={}, duplicates={}, buffered={}",
+                           inserted, messages.size() - inserted, queue.size());
+                rateTracker.recordStored(inserted, earliestCreatedAt(messages));
+                break;
+            } catch (Exception e) {
+                if (!running) {
+                    logger.error("Dropping {} unsaved DLQ messages on shutdown, they will be redelivered: {}",
+                                messages.size(), e.getMessage());
+                    return;
+                }
+                logger.error("Error saving {} DLQ messages, retrying in {}ms: {}",
+                            messages.size(), retryBackoffMs, e.getMessage(), e);
+                Thread.sleep(retryBackoffMs);
+            }
+        }
+
+        for (Entry entry : group) {
+            entry.onStored().run();
+        }
+    }
+
+    private static Instant earliestCreatedAt(List<DlqMessage> messages) {
+        Instant earliest = messages.get(0).getCreatedAt();
+        for (DlqMessage message : messages) {
+            if (message.getCreatedAt().isBefore(earliest)) {
+                earliest = message.getCreatedAt();
+            }
+        }
+        return earliest;
+    }
+
+    private void signalIfDrained() {
+        if (queue.size() <= resumeDepth) {
+            Runnable callback = drainedCallback.getAndSet(null);
+            if (callback != null) {
+                callback.run();
+            }
+        }
+    }
+}
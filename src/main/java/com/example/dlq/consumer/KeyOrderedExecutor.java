@@ -0,0 +1,79 @@
+package com.example.dlq.consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Worker pool of serial lanes. Tasks with the same key always land on the same lane and run
+ * in submission order; tasks with different keys run concurrently.
+ * <p>
+ * In virtual-thread mode each lane is backed by a virtual thread, so the lane count can be
+ * raised to thousands without sizing a platform thread pool.
+ */
+@Component
+@ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "parallel")
+public class KeyOrderedExecutor implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyOrderedExecutor.class);
+
+    private final ExecutorService[] lanes;
+
+    @Autowired
+    public KeyOrderedExecutor(@Value("${kafka.consumer.parallel.lanes:16}") int laneCount, Environment environment) {
+        this(laneCount, Threading.VIRTUAL.isActive(environment));
+    }
+
+    KeyOrderedExecutor(int laneCount, boolean virtualThreads) {
+        this.lanes = new ExecutorService[laneCount];
+        ThreadFactory threadFactory = virtualThreads
+            ? new VirtualThreadTaskExecutor("order-lane-").getVirtualThreadFactory()
+            : platformThreadFactory();
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(threadFactory);
+        }
+        logger.info("Started {} key-ordered processing lanes on {} threads",
+                   laneCount, virtualThreads ? "virtual" : "platform");
+    }
+
+    public CompletableFuture<Void> submit(Object key, Runnable task) {
+        return CompletableFuture.runAsync(task, lanes[Math.floorMod(key.hashCode(), lanes.length)]);
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    private static ThreadFactory platformThreadFactory() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "order-lane-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            lane.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+}
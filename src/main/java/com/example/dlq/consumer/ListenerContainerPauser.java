@@ -0,0 +1,52 @@
+package com.example.dlq.consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Pauses a whole listener container, to be resumed at a given time or explicitly.
+ */
+@Component
+public class ListenerContainerPauser {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListenerContainerPauser.class);
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final TaskScheduler taskScheduler;
+
+    public ListenerContainerPauser(KafkaListenerEndpointRegistry registry, TaskScheduler taskScheduler) {
+        this.registry = registry;
+        this.taskScheduler = taskScheduler;
+    }
+
+    public void pauseUntil(String listenerId, Instant resumeAt) {
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        if (container != null && !container.isPauseRequested()) {
+            container.pause();
+            logger.info("Paused listener container {} until {}", listenerId, resumeAt);
+            taskScheduler.schedule(container::resume, resumeAt);
+        }
+    }
+
+    public void pause(String listenerId) {
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        if (container != null && !container.isPauseRequested()) {
+            container.pause();
+            logger.info("Paused listener container {}", listenerId);
+        }
+    }
+
+    public void resume(String listenerId) {
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        if (container != null && container.isPauseRequested()) {
+            container.resume();
+            logger.info("Resumed listener container {}", listenerId);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.dlq.consumer;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks records whose retry/DLQ send completes asynchronously and commits, per partition,
+ * only up to the lowest offset that has not completed yet.
+ * <p>
+ * Records are registered and commits are made on the consumer thread; completions and
+ * failures may arrive from any thread (typically the producer I/O thread). A failed record
+ * rewinds its partition on the next {@link #maybeCommit(Consumer)}, so it is redelivered
+ * and the commit never moves past it.
+ * <p>
+ * Commits happen once {@code commitThreshold} records have completed since the last commit
+ * or {@code commitInterval} has passed, whichever comes first.
+ */
+class OffsetCommitTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(OffsetCommitTracker.class);
+
+    private final String name;
+    private final int commitThreshold;
+    private final long commitIntervalNanos;
+
+    private final Map<TopicPartition, OffsetWindow> windows = new HashMap<>();
+    private final Map<TopicPartition, Long> rewinds = new HashMap<>();
+    private int completedSinceCommit;
+    private long lastCommitNanos = System.nanoTime();
+
+    OffsetCommitTracker(String name, int commitThreshold, Duration commitInterval) {
+        this.name = name;
+        this.commitThreshold = commitThreshold;
+        this.commitIntervalNanos = commitInterval.toNanos();
+    }
+
+    synchronized void register(ConsumerRecord<?, ?> record) {
+        windows.computeIfAbsent(topicPartition(record), tp -> new OffsetWindow(record.offset()))
+            .register(record.offset());
+    }
+
+    void complete(ConsumerRecord<?, ?> record) {
+        complete(topicPartition(record), record.offset());
+    }
+
+    synchronized void complete(TopicPartition topicPartition, long offset) {
+        OffsetWindow window = windows.get(topicPartition);
+        if (window != null) {
+            window.complete(offset);
+            completedSinceCommit++;
+        }
+    }
+
+    /**
+     * Leaves the record pending and asks for its partition to be rewound to it.
+     */
+    synchronized void fail(ConsumerRecord<?, ?> record) {
+        TopicPartition topicPartition = topicPartition(record);
+        if (windows.containsKey(topicPartition)) {
+            rewinds.merge(topicPartition, record.offset(), Math::min);
+        }
+    }
+
+    /**
+     * Applies pending rewinds and, if the threshold or interval is reached, commits the
+     * partitions assigned to this consumer. Must be called on the consumer thread.
+     */
+    void maybeCommit(Consumer<?, ?> consumer) {
+        Set<TopicPartition> assignment = consumer.assignment();
+        Map<TopicPartition, Long> toRewind = new HashMap<>();
+        Map<TopicPartition, OffsetAndMetadata> commits = new HashMap<>();
+
+        synchronized (this) {
+            rewinds.entrySet().removeIf(rewind -> {
+                if (assignment.contains(rewind.getKey())) {
+                    toRewind.put(rewind.getKey(), rewind.getValue());
+                    return true;
+                }
+                return false;
+            });
+
+            long now = System.nanoTime();
+            if (completedSinceCommit >= commitThreshold || now - lastCommitNanos >= commitIntervalNanos) {
+                windows.forEach((topicPartition, window) -> {
+                    long offset = window.commitOffset();
+                    if (assignment.contains(topicPartition) && offset > window.getCommittedOffset()) {
+                        window.advanceTo(offset);
+                        commits.put(topicPartition, new OffsetAndMetadata(offset));
+                    }
+                });
+                completedSinceCommit = 0;
+                lastCommitNanos = now;
+            }
+        }
+
+        if (!toRewind.isEmpty()) {
+            toRewind.forEach(consumer::seek);
+            logger.warn("{}: rewound partitions to records whose send failed: {}", name, toRewind);
+        }
+        if (!commits.isEmpty()) {
+            consumer.commitAsync(commits, (offsets, exception) -> {
+                if (exception != null) {
+                    logger.warn("{}: offset commit failed, will be retried with the next commit: {}",
+                               name, exception.getMessage());
+                }
+            });
+            logger.debug("{}: committed {}", name, commits);
+        }
+    }
+
+    /**
+     * Forgets revoked partitions. Their uncommitted records are redelivered to the new owner.
+     */
+    synchronized void revoke(Collection<TopicPartition> partitions) {
+        partitions.forEach(topicPartition -> {
+            windows.remove(topicPartition);
+            rewinds.remove(topicPartition);
+        });
+    }
+
+    synchronized int getPendingCount() {
+        return windows.values().stream().mapToInt(OffsetWindow::getPendingCount).sum();
+    }
+
+    private static TopicPartition topicPartition(ConsumerRecord<?, ?> record) {
+        return new TopicPartition(record.topic(), record.partition());
+    }
+}
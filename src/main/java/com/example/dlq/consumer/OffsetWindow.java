@@ -0,0 +1,75 @@
+package com.example.dlq.consumer;
+
+import java.util.BitSet;
+
+/**
+ * Pending offsets of one partition as a bitset relative to the committed position.
+ * <p>
+ * A bit is set when a record is delivered and cleared when it completes. The commit offset is
+ * the first offset still pending, or one past the highest delivered offset when nothing is.
+ * Offsets below that which were never delivered (transaction markers, compacted records)
+ * are gaps and do not hold the commit back.
+ * <p>
+ * Not thread-safe; {@link OffsetCommitTracker} guards access.
+ */
+class OffsetWindow {
+
+    private long base;
+    private long next;
+    private BitSet pending = new BitSet();
+
+    OffsetWindow(long firstOffset) {
+        this.base = firstOffset;
+        this.next = firstOffset;
+    }
+
+    /**
+     * Marks a delivered record as pending. Redelivered records become pending again.
+     */
+    void register(long offset) {
+        if (offset < base) {
+            return;
+        }
+        pending.set(index(offset));
+        next = Math.max(next, offset + 1);
+    }
+
+    void complete(long offset) {
+        if (offset >= base) {
+            pending.clear(index(offset));
+        }
+    }
+
+    /**
+     * Offset to commit: everything below it has completed.
+     */
+    long commitOffset() {
+        int firstPending = pending.nextSetBit(0);
+        return firstPending < 0 ? next : base + firstPending;
+    }
+
+    long getCommittedOffset() {
+        return base;
+    }
+
+    int getPendingCount() {
+        return pending.cardinality();
+    }
+
+    /**
+     * Slides the window to a newly committed offset, dropping the bits below it.
+     */
+    void advanceTo(long offset) {
+        if (offset <= base) {
+            return;
+        }
+        int shift = index(offset);
+        pending = pending.get(shift, Math.max(shift, pending.length()));
+        base = offset;
+        next = Math.max(next, offset);
+    }
+
+    private int index(long offset) {
+        return Math.toIntExact(offset - base);
+    }
+}
@@ -2,30 +2,48 @@ package com.example.dlq.consumer;
 
 import com.example.dlq.model.OrderEvent;
 import com.example.dlq.model.RetryHeaders;
+import com.example.dlq.service.DownstreamCircuitBreaker;
 import com.example.dlq.service.ErrorClassifier;
 import com.example.dlq.service.OrderProcessingService;
 import com.example.dlq.service.RetryService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerSeekAware;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
 
 @Component
-public class OrderConsumer {
+@ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "record", matchIfMissing = true)
+public class OrderConsumer implements ConsumerSeekAware {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderConsumer.class);
 
+    static final String ORDER_LISTENER_ID = "order-listener";
+
+    // Redelivery delay for records rejected while half-open probes are in flight
+    private static final Duration HALF_OPEN_BACKOFF = Duration.ofSeconds(1);
+
     private final OrderProcessingService orderProcessingService;
     private final RetryService retryService;
     private final ErrorClassifier errorClassifier;
-    private final ObjectMapper objectMapper;
+    private final OrderEventReader orderEventReader;
+    private final DownstreamCircuitBreaker circuitBreaker;
+    private final ListenerContainerPauser containerPauser;
+    private final OffsetCommitTracker offsetTracker;
 
     @Value("${retry.max-attempts}")
     private int maxAttempts;
@@ -33,40 +51,63 @@ public class OrderConsumer {
     public OrderConsumer(OrderProcessingService orderProcessingService,
                         RetryService retryService,
                         ErrorClassifier errorClassifier,
-                        ObjectMapper objectMapper) {
+                        OrderEventReader orderEventReader,
+                        DownstreamCircuitBreaker circuitBreaker,
+                        ListenerContainerPauser containerPauser,
+                        @Value("${kafka.consumer.ack-tracker.commit-threshold:100}") int commitThreshold,
+                        @Value("${kafka.consumer.ack-tracker.commit-interval:1s}") Duration commitInterval) {
         this.orderProcessingService = orderProcessingService;
         this.retryService = retryService;
         this.errorClassifier = errorClassifier;
-        this.objectMapper = objectMapper;
+        this.orderEventReader = orderEventReader;
+        this.circuitBreaker = circuitBreaker;
+        this.containerPauser = containerPauser;
+        this.offsetTracker = new OffsetCommitTracker(ORDER_LISTENER_ID, commitThreshold, commitInterval);
     }
 
-    @KafkaListener(topics = "${kafka.topics.main}", groupId = "orders-consumer-group")
-    @Transactional
-    public void handleOrderEvent(ConsumerRecord<String, String> record,
+    @KafkaListener(id = ORDER_LISTENER_ID, topics = "${kafka.topics.main}", groupId = "orders-consumer-group")
+    public void handleOrderEvent(ConsumerRecord<String, byte[]> record,
                                 Acknowledgment acknowledgment,
+                                Consumer<?, ?> consumer,
                                 @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
                                 @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
                                 @Header(KafkaHeaders.OFFSET) long offset) {
         
         String key = record.key();
-        String value = record.value();
         
         logger.info("Received order event: key={}, topic={}, partition={}, offset={}", 
                    key, topic, partition, offset);
 
+        // Offsets are committed by the tracker, never past a record whose send is still in flight
+        offsetTracker.maybeCommit(consumer);
+        offsetTracker.register(record);
+
+        boolean permitted = false;
         try {
-            // Parse the order event
-            OrderEvent orderEvent = objectMapper.readValue(value, OrderEvent.class);
+            // Parse the order event in the format named by its content-type header
+            OrderEvent orderEvent = orderEventReader.read(record);
             
+            // While the downstream is failing, rewind instead of feeding the retry topics
+            permitted = circuitBreaker.tryAcquirePermission();
+            if (!permitted) {
+                rejectWhileCircuitOpen(acknowledgment, key);
+                return;
+            }
+
             // Process the order
             orderProcessingService.processOrder(orderEvent);
+            circuitBreaker.onSuccess();
+            retryService.recordSuccess();
             
-            // If successful, acknowledge the message
-            acknowledgment.acknowledge();
-            logger.info("Successfully processed and acknowledged order: {}", orderEvent.getOrderId());
+            // If successful, mark the record completed
+            offsetTracker.complete(record);
+            logger.info("Successfully processed order: {}", orderEvent.getOrderId());
             
         } catch (Exception e) {
             logger.error("Error processing order event: key={}, error={}", key, e.getMessage(), e);
+            if (permitted) {
+                circuitBreaker.onError(errorClassifier.classifyError(e));
+            }
             
             // Get current retry count from headers
             int currentRetryCount = RetryHeaders.getRetryCount(record.headers());
@@ -76,31 +117,59 @@ public class OrderConsumer {
                 logger.info("Sending order to retry: key={}, attempt={}", key, currentRetryCount + 1);
                 
                 // Send to retry topic
-                retryService.sendToRetry(key, value, currentRetryCount, topic, partition, offset, e)
-                    .thenAccept(result -> {
-                        logger.info("Successfully sent to retry topic: {}", result.getRecordMetadata().topic());
-                        acknowledgment.acknowledge();
-                    })
-                    .exceptionally(throwable -> {
-                        logger.error("Failed to send to retry topic: {}", throwable.getMessage(), throwable);
-                        // Don't acknowledge - let it retry
-                        return null;
+                retryService.sendToRetry(record, currentRetryCount, e, RetryHeaders.getRetryDelay(record.headers()))
+                    .whenComplete((result, throwable) -> {
+                        if (throwable == null) {
+                            logger.info("Successfully sent to retry topic: {}", result.getProducerRecord().topic());
+                            offsetTracker.complete(record);
+                        } else {
+                            logger.error("Failed to send to retry topic: {}", throwable.getMessage(), throwable);
+                            // Rewind to the record so it is redelivered
+                            offsetTracker.fail(record);
+                        }
                     });
             } else {
                 logger.warn("Max retries reached or permanent error, sending to DLQ: key={}", key);
                 
                 // Send to DLQ
-                retryService.sendToDlq(key, value, currentRetryCount, topic, partition, offset, e)
-                    .thenAccept(result -> {
-                        logger.info("Successfully sent to DLQ: {}", result.getRecordMetadata().topic());
-                        acknowledgment.acknowledge();
-                    })
-                    .exceptionally(throwable -> {
-                        logger.error("Failed to send to DLQ: {}", throwable.getMessage(), throwable);
-                        // Don't acknowledge - let it retry
-                        return null;
+                retryService.sendToDlq(record, currentRetryCount, e)
+                    .whenComplete((result, throwable) -> {
+                        if (throwable == null) {
+                            logger.info("Successfully sent to DLQ: {}", result.getProducerRecord().topic());
+                            offsetTracker.complete(record);
+                        } else {
+                            logger.error("Failed to send to DLQ: {}", throwable.getMessage(), throwable);
+                            // Rewind to the record so it is redelivered
+                            offsetTracker.fail(record);
+                        }
                     });
             }
         }
     }
+
+    /**
+     * Commits completed offsets while no records arrive; published on the consumer thread.
+     */
+    @EventListener(condition = "event.listenerId.startsWith('" + ORDER_LISTENER_ID + "')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        offsetTracker.maybeCommit(event.getConsumer());
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        offsetTracker.revoke(partitions);
+    }
+
+    private void rejectWhileCircuitOpen(Acknowledgment acknowledgment, String key) {
+        if (circuitBreaker.getState() == DownstreamCircuitBreaker.State.OPEN) {
+            Instant resumeAt = circuitBreaker.getOpenUntil();
+            logger.warn("Circuit open, pausing order consumption until {}: key={}", resumeAt, key);
+            containerPauser.pauseUntil(ORDER_LISTENER_ID, resumeAt);
+            // Rewind this and the remaining fetched records; they are redelivered after the resume
+            acknowledgment.nack(Duration.ZERO);
+        } else {
+            logger.debug("Circuit half-open with probes in flight, backing off: key={}", key);
+            acknowledgment.nack(HALF_OPEN_BACKOFF);
+        }
+    }
 }
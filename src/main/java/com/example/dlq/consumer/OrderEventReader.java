@@ -0,0 +1,69 @@
+package com.example.dlq.consumer;
+
+import com.example.dlq.model.OrderEvent;
+import com.example.dlq.model.OrderEventCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Reads order events in the format named by the record's {@code content-type} header:
+ * {@link OrderEventCodec binary}, or JSON for records without the header. JSON is parsed
+ * straight from the record bytes with a reader bound once to {@link OrderEvent}.
+ */
+@Component
+class OrderEventReader {
+
+    private static final byte[] JSON = OrderEventCodec.JSON.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BINARY = OrderEventCodec.BINARY.getBytes(StandardCharsets.US_ASCII);
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader jsonReader;
+
+    OrderEventReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.jsonReader = objectMapper.readerFor(OrderEvent.class);
+    }
+
+    OrderEvent read(ConsumerRecord<?, byte[]> record) throws IOException {
+        Header contentType = record.headers().lastHeader(OrderEventCodec.CONTENT_TYPE);
+        if (isBinary(contentType)) {
+            return OrderEventCodec.decode(record.value());
+        }
+        if (contentType != null && !Arrays.equals(contentType.value(), JSON)) {
+            throw new IllegalArgumentException("Unsupported content type: "
+                + new String(contentType.value(), StandardCharsets.UTF_8));
+        }
+        return jsonReader.readValue(record.value());
+    }
+
+    /**
+     * Returns the payload as JSON text, converting binary events, for storage and display.
+     * A binary payload that cannot be decoded is returned as Base64; payloads of any other
+     * content type are returned as text.
+     */
+    String readAsJson(ConsumerRecord<?, byte[]> record) throws IOException {
+        if (record.value() == null) {
+            return null;
+        }
+        if (isBinary(record.headers().lastHeader(OrderEventCodec.CONTENT_TYPE))) {
+            try {
+                return objectMapper.writeValueAsString(OrderEventCodec.decode(record.value()));
+            } catch (IllegalArgumentException e) {
+                return Base64.getEncoder().encodeToString(record.value());
+            }
+        }
+        return new String(record.value(), StandardCharsets.UTF_8);
+    }
+
+    private static boolean isBinary(Header contentType) {
+        return contentType != null && Arrays.equals(contentType.value(), BINARY);
+    }
+}
@@ -3,30 +3,41 @@ package com.example.dlq.consumer;
 import com.example.dlq.model.RetryHeaders;
 import com.example.dlq.service.ErrorClassifier;
 import com.example.dlq.service.OrderProcessingService;
+import com.example.dlq.service.RetryPolicy;
 import com.example.dlq.service.RetryService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.dlq.model.OrderEvent;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerSeekAware;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
 
 @Component
-public class RetryConsumer {
+public class RetryConsumer implements ConsumerSeekAware {
 
     private static final Logger logger = LoggerFactory.getLogger(RetryConsumer.class);
 
+    static final String RETRY_LISTENER_ID = "retry-listener";
+
     private final OrderProcessingService orderProcessingService;
     private final RetryService retryService;
     private final ErrorClassifier errorClassifier;
-    private final ObjectMapper objectMapper;
+    private final OrderEventReader orderEventReader;
+    private final RetryDelayScheduler retryDelayScheduler;
+    private final RetryPolicy retryPolicy;
+    private final OffsetCommitTracker offsetTracker;
 
     @Value("${retry.max-attempts}")
     private int maxAttempts;
@@ -34,74 +45,83 @@ public class RetryConsumer {
     public RetryConsumer(OrderProcessingService orderProcessingService,
                         RetryService retryService,
                         ErrorClassifier errorClassifier,
-                        ObjectMapper objectMapper) {
+                        OrderEventReader orderEventReader,
+                        RetryDelayScheduler retryDelayScheduler,
+                        RetryPolicy retryPolicy,
+                        @Value("${kafka.consumer.ack-tracker.commit-threshold:100}") int commitThreshold,
+                        @Value("${kafka.consumer.ack-tracker.commit-interval:1s}") Duration commitInterval) {
         this.orderProcessingService = orderProcessingService;
         this.retryService = retryService;
         this.errorClassifier = errorClassifier;
-        this.objectMapper = objectMapper;
+        this.orderEventReader = orderEventReader;
+        this.retryDelayScheduler = retryDelayScheduler;
+        this.retryPolicy = retryPolicy;
+        this.offsetTracker = new OffsetCommitTracker(RETRY_LISTENER_ID, commitThreshold, commitInterval);
     }
 
-    @KafkaListener(topics = "${kafka.topics.retry-5s}", groupId = "retry-consumer-group")
-    @Transactional
-    public void handleRetry5s(ConsumerRecord<String, String> record,
-                             Acknowledgment acknowledgment,
-                             @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-                             @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
-                             @Header(KafkaHeaders.OFFSET) long offset) {
+    @KafkaListener(id = RETRY_LISTENER_ID, topics = "#{@retryPolicy.topicNames()}", groupId = "retry-consumer-group")
+    public void handleRetry(ConsumerRecord<String, byte[]> record,
+                           Consumer<?, ?> consumer,
+                           @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                           @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+                           @Header(KafkaHeaders.OFFSET) long offset) {
         
-        handleRetryMessage(record, acknowledgment, topic, partition, offset, "5s");
+        RetryPolicy.Tier tier = retryPolicy.tierForTopic(topic);
+        String delayType = tier != null ? tier.delay().toString() : "unknown";
+        handleRetryMessage(record, consumer, topic, partition, offset, delayType);
     }
 
-    @KafkaListener(topics = "${kafka.topics.retry-30s}", groupId = "retry-consumer-group")
-    @Transactional
-    public void handleRetry30s(ConsumerRecord<String, String> record,
-                              Acknowledgment acknowledgment,
-                              @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-                              @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
-                              @Header(KafkaHeaders.OFFSET) long offset) {
-        
-        handleRetryMessage(record, acknowledgment, topic, partition, offset, "30s");
+    /**
+     * Commits completed offsets while no records arrive; published on the consumer thread.
+     */
+    @EventListener(condition = "event.listenerId.startsWith('" + RETRY_LISTENER_ID + "')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        offsetTracker.maybeCommit(event.getConsumer());
     }
 
-    @KafkaListener(topics = "${kafka.topics.retry-5m}", groupId = "retry-consumer-group")
-    @Transactional
-    public void handleRetry5m(ConsumerRecord<String, String> record,
-                             Acknowledgment acknowledgment,
-                             @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-                             @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
-                             @Header(KafkaHeaders.OFFSET) long offset) {
-        
-        handleRetryMessage(record, acknowledgment, topic, partition, offset, "5m");
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        retryDelayScheduler.clear(partitions);
+        offsetTracker.revoke(partitions);
     }
 
-    private void handleRetryMessage(ConsumerRecord<String, String> record,
-                                   Acknowledgment acknowledgment,
+    private void handleRetryMessage(ConsumerRecord<String, byte[]> record,
+                                   Consumer<?, ?> consumer,
                                    String topic, int partition, long offset,
                                    String delayType) {
         
         String key = record.key();
-        String value = record.value();
+
+        // Offsets are committed by the tracker, never past a record whose send is still in flight
+        offsetTracker.maybeCommit(consumer);
+        offsetTracker.register(record);
         
+        // Records fetched behind a deferred record are redelivered once the partition resumes
+        if (retryDelayScheduler.isDeferred(record)) {
+            logger.debug("Partition deferred, skipping: key={}, partition={}, offset={}", key, partition, offset);
+            return;
+        }
+
         logger.info("Processing retry message: key={}, topic={}, delay={}", key, topic, delayType);
 
         // Check if it's time to process this retry
-        Instant nextAt = RetryHeaders.getNextAt(record.headers());
-        if (nextAt != null && Instant.now().isBefore(nextAt)) {
-            logger.info("Retry not yet due, skipping: key={}, nextAt={}", key, nextAt);
-            // Don't acknowledge - let it be reprocessed later
+        long nextAtMillis = RetryHeaders.getNextAtMillis(record.headers());
+        if (System.currentTimeMillis() < nextAtMillis) {
+            Instant nextAt = Instant.ofEpochMilli(nextAtMillis);
+            logger.info("Retry not yet due, pausing partition: key={}, nextAt={}", key, nextAt);
+            // Leave it pending - rewind and pause the partition until the record is due
+            retryDelayScheduler.defer(RETRY_LISTENER_ID, record, consumer, nextAt);
             return;
         }
 
-        // Apply delay based on retry topic
-        applyDelay(delayType);
-
         try {
-            // Parse and process the order event
-            com.example.dlq.model.OrderEvent orderEvent = objectMapper.readValue(value, com.example.dlq.model.OrderEvent.class);
+            // Parse only once the record is due
+            OrderEvent orderEvent = orderEventReader.read(record);
             orderProcessingService.processOrder(orderEvent);
+            retryService.recordSuccess();
             
-            // If successful, acknowledge the message
-            acknowledgment.acknowledge();
+            // If successful, mark the record completed
+            offsetTracker.complete(record);
             logger.info("Successfully processed retry message: key={}, delay={}", key, delayType);
             
         } catch (Exception e) {
@@ -116,52 +136,33 @@ public class RetryConsumer {
                 logger.info("Sending to next retry level: key={}, attempt={}", key, currentRetryCount + 1);
                 
                 // Send to next retry topic or DLQ
-                retryService.sendToRetry(key, value, currentRetryCount, topic, partition, offset, e)
-                    .thenAccept(result -> {
-                        logger.info("Successfully sent to next retry level: {}", result.getRecordMetadata().topic());
-                        acknowledgment.acknowledge();
-                    })
-                    .exceptionally(throwable -> {
-                        logger.error("Failed to send to next retry level: {}", throwable.getMessage(), throwable);
-                        // Don't acknowledge - let it retry
-                        return null;
+                retryService.sendToRetry(record, currentRetryCount, e, RetryHeaders.getRetryDelay(record.headers()))
+                    .whenComplete((result, throwable) -> {
+                        if (throwable == null) {
+                            logger.info("Successfully sent to next retry level: {}", result.getProducerRecord().topic());
+                            offsetTracker.complete(record);
+                        } else {
+                            logger.error("Failed to send to next retry level: {}", throwable.getMessage(), throwable);
+                            // Rewind to the record so it is redelivered
+                            offsetTracker.fail(record);
+                        }
                     });
             } else {
                 logger.warn("Max retries reached, sending to DLQ: key={}", key);
                 
                 // Send to DLQ
-                retryService.sendToDlq(key, value, currentRetryCount, topic, partition, offset, e)
-                    .thenAccept(result -> {
-                        logger.info("Successfully sent to DLQ: {}", result.getRecordMetadata().topic());
-                        acknowledgment.acknowledge();
-                    })
-                    .exceptionally(throwable -> {
-                        logger.error("Failed to send to DLQ: {}", throwable.getMessage(), throwable);
-                        // Don't acknowledge - let it retry
-                        return null;
+                retryService.sendToDlq(record, currentRetryCount, e)
+                    .whenComplete((result, throwable) -> {
+                        if (throwable == null) {
+                            logger.info("Successfully sent to DLQ: {}", result.getProducerRecord().topic());
+                            offsetTracker.complete(record);
+                        } else {
+                            logger.error("Failed to send to DLQ: {}", throwable.getMessage(), throwable);
+                            // Rewind to the record so it is redelivered
+                            offsetTracker.fail(record);
+                        }
                     });
             }
         }
     }
-
-    private void applyDelay(String delayType) {
-        try {
-            switch (delayType) {
-                case "5s":
-                    Thread.sleep(5000);
-                    break;
-                case "30s":
-                    Thread.sleep(30000);
-                    break;
-                case "5m":
-                    Thread.sleep(300000); // 5 minutes
-                    break;
-                default:
-                    Thread.sleep(1000); // Default 1 second
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            logger.warn("Delay interrupted for delay type: {}", delayType);
-        }
-    }
 }
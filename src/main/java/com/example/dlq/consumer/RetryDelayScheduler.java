@@ -0,0 +1,92 @@
+package com.example.dlq.consumer;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Defers retry records that are not yet due without blocking the listener thread.
+ * <p>
+ * When the head record of a partition is not due, the partition is rewound to that record,
+ * paused on its listener container and resumed by the task scheduler once the record's
+ * {@code x-next-at} time has passed. Other partitions keep flowing in the meantime.
+ * <p>
+ * Records of a deferred partition that were already fetched in the same poll are skipped
+ * (left pending) until the rewound record is delivered again.
+ */
+@Component
+public class RetryDelayScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryDelayScheduler.class);
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final TaskScheduler taskScheduler;
+
+    // Rewound offset per deferred partition
+    private final Map<TopicPartition, Long> deferred = new ConcurrentHashMap<>();
+
+    public RetryDelayScheduler(KafkaListenerEndpointRegistry registry, TaskScheduler taskScheduler) {
+        this.registry = registry;
+        this.taskScheduler = taskScheduler;
+    }
+
+    /**
+     * Returns true if the record belongs to a deferred partition and must be skipped.
+     * Delivery of the rewound record itself clears the deferral.
+     */
+    public boolean isDeferred(ConsumerRecord<?, ?> record) {
+        TopicPartition topicPartition = new TopicPartition(record.topic(), record.partition());
+        Long rewoundOffset = deferred.get(topicPartition);
+        if (rewoundOffset == null) {
+            return false;
+        }
+        if (record.offset() > rewoundOffset) {
+            return true;
+        }
+        deferred.remove(topicPartition, rewoundOffset);
+        return false;
+    }
+
+    /**
+     * Rewinds the record's partition, pauses it and schedules the resume at {@code dueAt}.
+     * Must be called on the listener (consumer) thread.
+     */
+    public void defer(String listenerId, ConsumerRecord<?, ?> record, Consumer<?, ?> consumer, Instant dueAt) {
+        TopicPartition topicPartition = new TopicPartition(record.topic(), record.partition());
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        if (container == null) {
+            throw new IllegalStateException("No listener container registered with id: " + listenerId);
+        }
+
+        consumer.seek(topicPartition, record.offset());
+        deferred.put(topicPartition, record.offset());
+        container.pausePartition(topicPartition);
+
+        logger.debug("Deferred partition {} at offset {} until {}", topicPartition, record.offset(), dueAt);
+
+        taskScheduler.schedule(() -> resume(container, topicPartition), dueAt);
+    }
+
+    /**
+     * Forgets deferrals for partitions that are no longer assigned to this instance.
+     */
+    public void clear(Collection<TopicPartition> partitions) {
+        partitions.forEach(deferred::remove);
+    }
+
+    private void resume(MessageListenerContainer container, TopicPartition topicPartition) {
+        container.resumePartition(topicPartition);
+        logger.debug("Resumed deferred partition {}", topicPartition);
+    }
+}
@@ -1,13 +1,26 @@
 package com.example.dlq.controller;
 
 import com.example.dlq.entity.DlqMessage;
+import com.example.dlq.entity.DlqRollup;
+import com.example.dlq.entity.StackTrace;
+import com.example.dlq.job.DlqReplayService;
+import com.example.dlq.job.Job;
+import com.example.dlq.job.RequeueJobService;
+import com.example.dlq.job.RetentionPurgeService;
+import com.example.dlq.model.CursorPage;
+import com.example.dlq.model.DlqErrorGroup;
+import com.example.dlq.model.DlqMessageSummary;
+import com.example.dlq.model.ReplayRequest;
+import com.example.dlq.model.RequeueFilter;
 import com.example.dlq.service.DlqService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,21 +30,45 @@ import java.util.Optional;
 public class DlqController {
 
     private final DlqService dlqService;
+    private final RequeueJobService requeueJobService;
+    private final DlqReplayService dlqReplayService;
+    private final RetentionPurgeService retentionPurgeService;
 
-    public DlqController(DlqService dlqService) {
+    public DlqController(DlqService dlqService, RequeueJobService requeueJobService,
+                         DlqReplayService dlqReplayService, RetentionPurgeService retentionPurgeService) {
         this.dlqService = dlqService;
+        this.requeueJobService = requeueJobService;
+        this.dlqReplayService = dlqReplayService;
+        this.retentionPurgeService = retentionPurgeService;
     }
 
     @GetMapping
-    public ResponseEntity<Page<DlqMessage>> getDlqMessages(
+    public ResponseEntity<Page<DlqMessageSummary>> getDlqMessages(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<DlqMessage> messages = dlqService.getDlqMessages(pageable);
+        Page<DlqMessageSummary> messages = dlqService.getDlqMessages(pageable);
         return ResponseEntity.ok(messages);
     }
 
+    /**
+     * Keyset-paged listing, newest first. Pass the {@code nextCursor} or {@code prevCursor}
+     * of a page as {@code after} or {@code before} to get the adjacent page.
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<DlqMessageSummary>> getDlqMessagesByCursor(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") int size) {
+
+        try {
+            return ResponseEntity.ok(dlqService.getDlqMessages(after, before, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<DlqMessage> getDlqMessage(@PathVariable Long id) {
         Optional<DlqMessage> message = dlqService.getDlqMessage(id);
@@ -39,9 +76,16 @@ public class DlqController {
                      .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/stacktraces/{fingerprint}")
+    public ResponseEntity<StackTrace> getStackTrace(@PathVariable String fingerprint) {
+        return dlqService.getStackTrace(fingerprint)
+                     .map(ResponseEntity::ok)
+                     .orElse(ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/key/{messageKey}")
-    public ResponseEntity<List<DlqMessage>> getDlqMessagesByKey(@PathVariable String messageKey) {
-        List<DlqMessage> messages = dlqService.getDlqMessagesByKey(messageKey);
+    public ResponseEntity<List<DlqMessageSummary>> getDlqMessagesByKey(@PathVariable String messageKey) {
+        List<DlqMessageSummary> messages = dlqService.getDlqMessagesByKey(messageKey);
         return ResponseEntity.ok(messages);
     }
 
@@ -59,6 +103,46 @@ public class DlqController {
         }
     }
 
+    /**
+     * Starts a background requeue of every requeueable message matching the filter; follow
+     * its progress, or cancel it, under {@code /api/jobs/{id}}.
+     */
+    @PostMapping("/requeue-jobs")
+    public ResponseEntity<Job> startRequeueJob(
+            @RequestBody(required = false) RequeueFilter filter,
+            @RequestParam(defaultValue = "admin") String requeuedBy,
+            @RequestParam(required = false) Double messagesPerSecond) {
+
+        if (messagesPerSecond != null && messagesPerSecond <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        Job job = requeueJobService.submit(filter != null ? filter : new RequeueFilter(), requeuedBy, messagesPerSecond);
+        return ResponseEntity.accepted().body(job);
+    }
+
+    /**
+     * Starts a background replay of records read directly from the DLQ topic, bypassing the
+     * database; follow or cancel it under {@code /api/jobs/{id}}.
+     */
+    @PostMapping("/replay-jobs")
+    public ResponseEntity<Job> startReplayJob(@RequestBody ReplayRequest request) {
+        try {
+            return ResponseEntity.accepted().body(dlqReplayService.submit(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Runs the retention purge now instead of waiting for the schedule; 409 while one runs.
+     */
+    @PostMapping("/retention/purge")
+    public ResponseEntity<Job> startRetentionPurge() {
+        return retentionPurgeService.submit()
+                     .map(job -> ResponseEntity.accepted().body(job))
+                     .orElse(ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<String> deleteDlqMessage(@PathVariable Long id) {
         dlqService.deleteDlqMessage(id);
@@ -66,12 +150,41 @@ public class DlqController {
     }
 
     @GetMapping("/requeueable")
-    public ResponseEntity<Page<DlqMessage>> getRequeueableMessages(
+    public ResponseEntity<Page<DlqMessageSummary>> getRequeueableMessages(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<DlqMessage> messages = dlqService.getRequeueableMessages(pageable);
+        Page<DlqMessageSummary> messages = dlqService.getRequeueableMessages(pageable);
         return ResponseEntity.ok(messages);
     }
+
+    @GetMapping("/requeueable/cursor")
+    public ResponseEntity<CursorPage<DlqMessageSummary>> getRequeueableMessagesByCursor(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") int size) {
+
+        try {
+            return ResponseEntity.ok(dlqService.getRequeueableMessages(after, before, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Which errors from which topics are filling the DLQ: pending messages per original topic
+     * and error fingerprint over the last {@code hours}, served from the rollup table.
+     */
+    @GetMapping("/rollup/errors")
+    public ResponseEntity<List<DlqErrorGroup>> getErrorGroups(@RequestParam(defaultValue = "24") int hours) {
+        return ResponseEntity.ok(dlqService.getErrorGroups(Duration.ofHours(hours)));
+    }
+
+    @GetMapping("/rollup/hourly")
+    public ResponseEntity<List<DlqRollup>> getHourlyRollup(
+            @RequestParam(defaultValue = "24") int hours,
+            @RequestParam(required = false) String topic) {
+        return ResponseEntity.ok(dlqService.getHourlyRollup(Duration.ofHours(hours), topic));
+    }
 }
@@ -1,37 +1,50 @@
 package com.example.dlq.controller;
 
 import com.example.dlq.entity.DlqMessage;
+import com.example.dlq.model.CursorPage;
+import com.example.dlq.model.DlqMessageSummary;
+import com.example.dlq.service.DlqRateTracker;
 import com.example.dlq.service.DlqService;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+
 @Controller
 @RequestMapping("/dlq")
 public class DlqWebController {
 
     private final DlqService dlqService;
+    private final DlqRateTracker rateTracker;
 
-    public DlqWebController(DlqService dlqService) {
+    public DlqWebController(DlqService dlqService, DlqRateTracker rateTracker) {
         this.dlqService = dlqService;
+        this.rateTracker = rateTracker;
     }
 
+    /**
+     * Keyset-paged like {@code /api/dlq/cursor}; the header counts come from the
+     * {@link DlqRateTracker}.
+     */
     @GetMapping
     public String dlqDashboard(
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String before,
             @RequestParam(defaultValue = "20") int size,
             Model model) {
         
-        Pageable pageable = PageRequest.of(page, size);
-        Page<DlqMessage> messages = dlqService.getDlqMessages(pageable);
+        CursorPage<DlqMessageSummary> messages;
+        try {
+            messages = dlqService.getDlqMessages(after, before, size);
+        } catch (IllegalArgumentException e) {
+            return "redirect:/dlq";
+        }
         
         model.addAttribute("messages", messages);
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", messages.getTotalPages());
-        model.addAttribute("totalElements", messages.getTotalElements());
+        model.addAttribute("size", size);
+        model.addAttribute("totalElements", rateTracker.getTotalCount());
+        model.addAttribute("lastDayCount", rateTracker.getCountSince(Duration.ofDays(1)));
         
         return "dlq-dashboard";
     }
@@ -40,6 +53,7 @@ public class DlqWebController {
     public String messageDetail(@PathVariable Long id, Model model) {
         DlqMessage message = dlqService.getDlqMessage(id).orElse(null);
         model.addAttribute("message", message);
+        model.addAttribute("stacktrace", message != null ? dlqService.getStacktrace(message).orElse(null) : null);
         return "message-detail";
     }
 
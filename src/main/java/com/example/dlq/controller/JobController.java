@@ -0,0 +1,45 @@
+package com.example.dlq.controller;
+
+import com.example.dlq.job.Job;
+import com.example.dlq.job.JobRunner;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Status and cancellation of background jobs such as bulk requeues.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+@CrossOrigin(origins = "*")
+public class JobController {
+
+    private final JobRunner jobRunner;
+
+    public JobController(JobRunner jobRunner) {
+        this.jobRunner = jobRunner;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<Job>> getJobs() {
+        return ResponseEntity.ok(jobRunner.list());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Job> getJob(@PathVariable String id) {
+        return jobRunner.get(id)
+                     .map(ResponseEntity::ok)
+                     .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<String> cancelJob(@PathVariable String id) {
+        if (jobRunner.cancel(id)) {
+            return ResponseEntity.accepted().body("Cancellation requested");
+        }
+        return jobRunner.get(id).isPresent()
+            ? ResponseEntity.badRequest().body("Job is not running")
+            : ResponseEntity.notFound().build();
+    }
+}
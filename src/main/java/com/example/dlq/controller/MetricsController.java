@@ -1,24 +1,29 @@
 package com.example.dlq.controller;
 
-import com.example.dlq.service.DlqService;
+import com.example.dlq.service.DlqRateTracker;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * DLQ rates and backlog, answered from the in-memory {@link DlqRateTracker} without touching
+ * the database, so frequent scrapes stay cheap.
+ */
 @RestController
 @RequestMapping("/api/metrics")
 public class MetricsController {
 
-    private final DlqService dlqService;
+    private final DlqRateTracker rateTracker;
 
-    public MetricsController(DlqService dlqService) {
-        this.dlqService = dlqService;
+    public MetricsController(DlqRateTracker rateTracker) {
+        this.rateTracker = rateTracker;
     }
 
     @GetMapping("/dlq")
@@ -26,21 +31,19 @@ public class MetricsController {
         Map<String, Object> metrics = new HashMap<>();
         
         // DLQ message count in last hour
-        Instant oneHourAgo = Instant.now().minus(1, ChronoUnit.HOURS);
-        Long dlqCountLastHour = dlqService.getMessageCountSince(oneHourAgo);
+        long dlqCountLastHour = rateTracker.getCountSince(Duration.ofHours(1));
         metrics.put("dlqMessagesLastHour", dlqCountLastHour);
         
         // DLQ message count in last day
-        Instant oneDayAgo = Instant.now().minus(1, ChronoUnit.DAYS);
-        Long dlqCountLastDay = dlqService.getMessageCountSince(oneDayAgo);
+        long dlqCountLastDay = rateTracker.getCountSince(Duration.ofDays(1));
         metrics.put("dlqMessagesLastDay", dlqCountLastDay);
         
         // Oldest messages (older than 15 minutes)
-        Instant fifteenMinutesAgo = Instant.now().minus(15, ChronoUnit.MINUTES);
-        var oldestMessages = dlqService.getOldestMessages(fifteenMinutesAgo);
-        metrics.put("oldestMessagesCount", oldestMessages.size());
-        metrics.put("oldestMessageAge", oldestMessages.isEmpty() ? 0 : 
-            ChronoUnit.MINUTES.between(oldestMessages.get(0).getCreatedAt(), Instant.now()));
+        long oldestMessagesCount = rateTracker.getCountOlderThan(Duration.ofMinutes(15));
+        Instant oldestCreatedAt = rateTracker.getOldestCreatedAt();
+        metrics.put("oldestMessagesCount", oldestMessagesCount);
+        metrics.put("oldestMessageAge", oldestMessagesCount == 0 || oldestCreatedAt == null ? 0 :
+            ChronoUnit.MINUTES.between(oldestCreatedAt, Instant.now()));
         
         return ResponseEntity.ok(metrics);
     }
@@ -50,8 +53,7 @@ public class MetricsController {
         Map<String, Object> health = new HashMap<>();
         
         // Check DLQ rate (alerts if > 10 messages per minute)
-        Instant oneMinuteAgo = Instant.now().minus(1, ChronoUnit.MINUTES);
-        Long dlqCountLastMinute = dlqService.getMessageCountSince(oneMinuteAgo);
+        long dlqCountLastMinute = rateTracker.getCountSince(Duration.ofMinutes(1));
         boolean dlqRateHigh = dlqCountLastMinute > 10;
         
         health.put("dlqRateHigh", dlqRateHigh);
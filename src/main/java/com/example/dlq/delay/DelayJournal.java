@@ -0,0 +1,266 @@
+package com.example.dlq.delay;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of pending delayed records.
+ * <p>
+ * Every scheduled record is appended as an ADD entry and every published record as a
+ * REMOVE entry. Replaying the file yields the records still pending. Entries are framed as
+ * {@code [length][crc32][payload]}; a torn tail left by a crash is detected by the CRC and
+ * truncated on open. Once removed entries dominate the file it is rewritten with only the
+ * live records.
+ * <p>
+ * Appends and removes are written without forcing them to disk; {@link #sync()} forces
+ * everything written so far, so callers can group many entries into one fsync.
+ */
+public class DelayJournal implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DelayJournal.class);
+
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final int FRAME_HEADER_BYTES = Integer.BYTES * 2;
+    private static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    private final Path file;
+    private final boolean fsync;
+    private FileChannel channel;
+    private boolean dirty;
+    private long liveEntries;
+    private long removedEntries;
+
+    public DelayJournal(Path file, boolean fsync) {
+        this.file = file;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Opens the journal for appending and returns the records that are still pending.
+     */
+    public synchronized List<DelayedRecord> open() throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Map<Long, DelayedRecord> pending = new LinkedHashMap<>();
+        long validBytes = 0;
+
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                byte[] payload;
+                while ((payload = readFrame(in)) != null) {
+                    ByteBuffer buffer = ByteBuffer.wrap(payload);
+                    byte type = buffer.get();
+                    long id = buffer.getLong();
+                    if (type == ADD) {
+                        pending.put(id, decode(id, buffer));
+                    } else {
+                        pending.remove(id);
+                    }
+                    validBytes += FRAME_HEADER_BYTES + payload.length;
+                }
+            }
+        }
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (channel.size() > validBytes) {
+            logger.warn("Truncating torn delay journal tail: file={}, validBytes={}, size={}",
+                       file, validBytes, channel.size());
+            channel.truncate(validBytes);
+        }
+        channel.position(validBytes);
+
+        liveEntries = pending.size();
+        removedEntries = 0;
+        return new ArrayList<>(pending.values());
+    }
+
+    public synchronized void append(DelayedRecord record) throws IOException {
+        writeFully(encodeAdd(record));
+        liveEntries++;
+    }
+
+    public synchronized void remove(Collection<Long> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        ByteBuffer batch = ByteBuffer.allocate(ids.size() * (FRAME_HEADER_BYTES + 1 + Long.BYTES));
+        for (long id : ids) {
+            ByteBuffer payload = ByteBuffer.allocate(1 + Long.BYTES).put(REMOVE).putLong(id);
+            frame(batch, payload.array());
+        }
+        batch.flip();
+        writeFully(batch);
+        liveEntries -= ids.size();
+        removedEntries += ids.size();
+    }
+
+    /**
+     * Forces the entries written since the last sync to disk, if fsync is enabled.
+     */
+    public synchronized void sync() throws IOException {
+        if (fsync && dirty && channel != null) {
+            channel.force(false);
+        }
+        dirty = false;
+    }
+
+    /**
+     * Rewrites the journal with only {@code live} records once removed entries outnumber them.
+     */
+    public synchronized void compactIfNeeded(Collection<DelayedRecord> live) throws IOException {
+        if (removedEntries < 1024 || removedEntries < liveEntries * 2) {
+            return;
+        }
+
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (DelayedRecord record : live) {
+                ByteBuffer buffer = encodeAdd(record);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+            out.force(true);
+        }
+
+        channel.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        // Everything pending was written to the compacted file and forced
+        dirty = false;
+
+        logger.info("Compacted delay journal: live={}, dropped={}", live.size(), removedEntries);
+        liveEntries = live.size();
+        removedEntries = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        dirty = true;
+    }
+
+    private static ByteBuffer encodeAdd(DelayedRecord record) {
+        byte[] topic = record.topic().getBytes(StandardCharsets.UTF_8);
+        byte[] key = record.key() != null ? record.key().getBytes(StandardCharsets.UTF_8) : null;
+        byte[] value = record.value();
+
+        int size = 1 + Long.BYTES * 2 + sizeOf(topic) + sizeOf(key) + sizeOf(value) + Integer.BYTES;
+        List<byte[]> headerNames = new ArrayList<>(record.headers().size());
+        for (Header header : record.headers()) {
+            byte[] name = header.key().getBytes(StandardCharsets.UTF_8);
+            headerNames.add(name);
+            size += sizeOf(name) + sizeOf(header.value());
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(size);
+        payload.put(ADD).putLong(record.id()).putLong(record.dueAtMs());
+        putBytes(payload, topic);
+        putBytes(payload, key);
+        putBytes(payload, value);
+        payload.putInt(record.headers().size());
+        for (int i = 0; i < headerNames.size(); i++) {
+            putBytes(payload, headerNames.get(i));
+            putBytes(payload, record.headers().get(i).value());
+        }
+
+        ByteBuffer framed = ByteBuffer.allocate(FRAME_HEADER_BYTES + size);
+        frame(framed, payload.array());
+        framed.flip();
+        return framed;
+    }
+
+    private static DelayedRecord decode(long id, ByteBuffer buffer) {
+        long dueAtMs = buffer.getLong();
+        String topic = getString(buffer);
+        String key = getString(buffer);
+        byte[] value = getBytes(buffer);
+        int headerCount = buffer.getInt();
+        List<Header> headers = new ArrayList<>(headerCount);
+        for (int i = 0; i < headerCount; i++) {
+            headers.add(new RecordHeader(getString(buffer), getBytes(buffer)));
+        }
+        return new DelayedRecord(id, dueAtMs, topic, key, value, headers);
+    }
+
+    private static void frame(ByteBuffer target, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        target.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+    }
+
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length <= 0 || length > MAX_FRAME_BYTES) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue() == checksum ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static int sizeOf(byte[] bytes) {
+        return Integer.BYTES + (bytes != null ? bytes.length : 0);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = getBytes(buffer);
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+}
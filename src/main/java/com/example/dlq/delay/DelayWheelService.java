@@ -0,0 +1,248 @@
+package com.example.dlq.delay;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds retry records in an in-process {@link TimingWheel} instead of a retry topic and
+ * publishes them once due. Pending records are journaled to a local file so they survive
+ * a restart.
+ * <p>
+ * With fsync enabled, a scheduled record is acknowledged only once its journal entry is on
+ * disk. A sync thread forces the journal once for every record journaled while the previous
+ * force ran, so the listener threads never wait for the disk and concurrent records share
+ * one fsync.
+ */
+@Service
+@ConditionalOnProperty(name = "retry.delay-wheel.enabled", havingValue = "true")
+public class DelayWheelService implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(DelayWheelService.class);
+
+    // Longest wait of the sync thread between checks for a stop request
+    private static final long SYNC_POLL_MS = 100;
+
+    private record Unsynced(ProducerRecord<String, byte[]> record,
+                            CompletableFuture<SendResult<String, byte[]>> future) {
+    }
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final DelayJournal journal;
+    private final TimingWheel<DelayedRecord> wheel;
+    private final Map<Long, DelayedRecord> pending = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final BlockingQueue<Unsynced> unsynced = new LinkedBlockingQueue<>();
+    private final boolean fsync;
+    private final long tickMs;
+    private final long publishRetryMs;
+
+    private volatile boolean running;
+    private Thread driver;
+    private Thread syncer;
+
+    public DelayWheelService(KafkaTemplate<String, byte[]> kafkaTemplate,
+                            @Value("${retry.delay-wheel.journal:data/delay-wheel.journal}") String journalFile,
+                            @Value("${retry.delay-wheel.fsync:true}") boolean fsync,
+                            @Value("${retry.delay-wheel.tick-ms:100}") long tickMs,
+                            @Value("${retry.delay-wheel.wheel-size:512}") int wheelSize,
+                            @Value("${retry.delay-wheel.publish-retry-ms:5000}") long publishRetryMs) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.journal = new DelayJournal(Path.of(journalFile), fsync);
+        this.fsync = fsync;
+        this.wheel = new TimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+        this.tickMs = tickMs;
+        this.publishRetryMs = publishRetryMs;
+    }
+
+    /**
+     * Parks the record until {@code dueAt}. The returned future completes once the record
+     * is journaled (and forced to disk, with fsync), after which the source record may be
+     * acknowledged.
+     */
+    public CompletableFuture<SendResult<String, byte[]>> schedule(ProducerRecord<String, byte[]> record, Instant dueAt) {
+        List<Header> headers = new ArrayList<>();
+        record.headers().forEach(headers::add);
+        DelayedRecord delayed = new DelayedRecord(
+            ids.incrementAndGet(), dueAt.toEpochMilli(), record.topic(), record.key(), record.value(), headers
+        );
+
+        // Registered before journaling so a concurrent compaction cannot drop it
+        pending.put(delayed.id(), delayed);
+        try {
+            journal.append(delayed);
+        } catch (IOException e) {
+            pending.remove(delayed.id());
+            logger.error("Failed to journal delayed record: key={}, error={}", record.key(), e.getMessage(), e);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        wheel.schedule(delayed.dueAtMs(), delayed);
+        logger.debug("Scheduled delayed record: id={}, key={}, dueAt={}", delayed.id(), record.key(), dueAt);
+
+        if (!fsync) {
+            return CompletableFuture.completedFuture(new SendResult<>(record, null));
+        }
+        // Enqueued after the append, so the next force covers it
+        CompletableFuture<SendResult<String, byte[]>> future = new CompletableFuture<>();
+        unsynced.add(new Unsynced(record, future));
+        return future;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public void start() {
+        try {
+            List<DelayedRecord> recovered = journal.open();
+            long maxId = 0;
+            for (DelayedRecord record : recovered) {
+                pending.put(record.id(), record);
+                wheel.schedule(record.dueAtMs(), record);
+                maxId = Math.max(maxId, record.id());
+            }
+            ids.set(maxId);
+            logger.info("Recovered {} pending delayed records from journal", recovered.size());
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to open delay journal", e);
+        }
+
+        running = true;
+        driver = new Thread(this::drive, "delay-wheel");
+        driver.setDaemon(true);
+        driver.start();
+        syncer = new Thread(this::sync, "delay-journal-sync");
+        syncer.setDaemon(true);
+        syncer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (driver != null) {
+            driver.interrupt();
+            try {
+                driver.join(tickMs * 10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (syncer != null) {
+            try {
+                syncer.join(SYNC_POLL_MS * 10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close delay journal: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drive() {
+        List<DelayedRecord> due = new ArrayList<>();
+        while (running) {
+            try {
+                wheel.advance(tickMs, due::add);
+                if (!due.isEmpty()) {
+                    publish(due);
+                    due.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Delay wheel driver error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void sync() {
+        List<Unsynced> group = new ArrayList<>();
+        while (running || !unsynced.isEmpty()) {
+            try {
+                Unsynced first = unsynced.poll(SYNC_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                unsynced.drainTo(group);
+                syncGroup(group);
+                group.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void syncGroup(List<Unsynced> group) {
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            logger.error("Failed to sync delay journal for {} records: {}", group.size(), e.getMessage(), e);
+            group.forEach(entry -> entry.future().completeExceptionally(e));
+            return;
+        }
+        group.forEach(entry -> entry.future().complete(new SendResult<>(entry.record(), null)));
+    }
+
+    private void publish(List<DelayedRecord> due) throws IOException {
+        try {
+            kafkaTemplate.executeInTransaction(operations -> {
+                due.forEach(record -> operations.send(toProducerRecord(record)));
+                return null;
+            });
+        } catch (Exception e) {
+            logger.error("Failed to publish {} delayed records, retrying in {}ms: {}",
+                        due.size(), publishRetryMs, e.getMessage());
+            long retryAt = System.currentTimeMillis() + publishRetryMs;
+            due.forEach(record -> wheel.schedule(retryAt, record));
+            return;
+        }
+
+        List<Long> published = new ArrayList<>(due.size());
+        for (DelayedRecord record : due) {
+            published.add(record.id());
+            pending.remove(record.id());
+        }
+        journal.remove(published);
+        journal.compactIfNeeded(pending.values());
+        logger.info("Published {} delayed records", due.size());
+    }
+
+    private ProducerRecord<String, byte[]> toProducerRecord(DelayedRecord record) {
+        return new ProducerRecord<>(record.topic(), null, record.key(), record.value(),
+            new RecordHeaders(record.headers()));
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.dlq.delay;
+
+import org.apache.kafka.common.header.Header;
+
+import java.util.List;
+
+/**
+ * A record parked in the delay wheel until {@code dueAtMs}, then published to {@code topic}.
+ */
+public record DelayedRecord(long id, long dueAtMs, String topic, String key, byte[] value, List<Header> headers) {
+}
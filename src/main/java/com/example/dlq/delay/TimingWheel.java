@@ -0,0 +1,219 @@
+package com.example.dlq.delay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel holding items until their due time.
+ * <p>
+ * Scheduling is O(1): an item is appended to the bucket covering its due time on the
+ * finest level whose span can hold it, creating coarser overflow levels on demand. Only
+ * buckets (not items) are ordered in a {@link DelayQueue}, so the driver thread wakes up
+ * once per non-empty bucket and cascades its items down to finer levels until they expire.
+ *
+ * @param <T> the scheduled item type
+ */
+public class TimingWheel<T> {
+
+    private final DelayQueue<Bucket<T>> expiringBuckets = new DelayQueue<>();
+    private final List<T> overdue = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Level root;
+    private int size;
+
+    public TimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMs and wheelSize must be positive");
+        }
+        this.root = new Level(tickMs, wheelSize, startMs);
+    }
+
+    /**
+     * Schedules an item. Items already due are handed out by the next {@link #advance} call.
+     */
+    public void schedule(long dueAtMs, T item) {
+        lock.lock();
+        try {
+            Node<T> node = new Node<>(dueAtMs, item);
+            if (!root.add(node)) {
+                overdue.add(item);
+            }
+            size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits up to {@code timeoutMs} for the next bucket to expire and passes every item
+     * that became due to {@code sink}.
+     *
+     * @return the number of items handed to the sink
+     */
+    public int advance(long timeoutMs, Consumer<T> sink) throws InterruptedException {
+        int emitted = drainOverdue(sink);
+        Bucket<T> bucket = emitted > 0
+            ? expiringBuckets.poll()
+            : expiringBuckets.poll(timeoutMs, TimeUnit.MILLISECONDS);
+
+        if (bucket == null) {
+            return emitted;
+        }
+
+        lock.lock();
+        try {
+            while (bucket != null) {
+                root.advanceClock(bucket.getExpiration());
+                Node<T> node = bucket.flush();
+                while (node != null) {
+                    Node<T> next = node.next;
+                    node.next = null;
+                    // Either cascades into a finer level or is due now
+                    if (!root.add(node)) {
+                        size--;
+                        emitted++;
+                        sink.accept(node.item);
+                    }
+                    node = next;
+                }
+                bucket = expiringBuckets.poll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return emitted;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int drainOverdue(Consumer<T> sink) {
+        lock.lock();
+        try {
+            int drained = overdue.size();
+            overdue.forEach(sink);
+            overdue.clear();
+            size -= drained;
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final class Level {
+
+        private final long tickMs;
+        private final int wheelSize;
+        private final long interval;
+        private final List<Bucket<T>> buckets;
+        private long currentTime;
+        private Level overflow;
+
+        Level(long tickMs, int wheelSize, long startMs) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new Bucket<>());
+            }
+            this.currentTime = startMs - (startMs % tickMs);
+        }
+
+        boolean add(Node<T> node) {
+            long dueAt = node.dueAtMs;
+            if (dueAt < currentTime + tickMs) {
+                return false;
+            }
+            if (dueAt < currentTime + interval) {
+                long virtualId = dueAt / tickMs;
+                Bucket<T> bucket = buckets.get((int) (virtualId % wheelSize));
+                bucket.add(node);
+                if (bucket.setExpiration(virtualId * tickMs)) {
+                    expiringBuckets.offer(bucket);
+                }
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level(interval, wheelSize, currentTime);
+            }
+            return overflow.add(node);
+        }
+
+        void advanceClock(long timeMs) {
+            if (timeMs >= currentTime + tickMs) {
+                currentTime = timeMs - (timeMs % tickMs);
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+    }
+
+    private static final class Bucket<T> implements Delayed {
+
+        private Node<T> head;
+        private Node<T> tail;
+        private volatile long expiration = -1L;
+
+        void add(Node<T> node) {
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        Node<T> flush() {
+            Node<T> first = head;
+            head = null;
+            tail = null;
+            expiration = -1L;
+            return first;
+        }
+
+        boolean setExpiration(long expirationMs) {
+            long previous = expiration;
+            expiration = expirationMs;
+            return previous != expirationMs;
+        }
+
+        long getExpiration() {
+            return expiration;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(expiration - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiration, ((Bucket<?>) other).expiration);
+        }
+    }
+
+    private static final class Node<T> {
+
+        private final long dueAtMs;
+        private final T item;
+        private Node<T> next;
+
+        Node(long dueAtMs, T item) {
+            this.dueAtMs = dueAtMs;
+            this.item = item;
+        }
+    }
+}
@@ -1,14 +1,41 @@
 package com.example.dlq.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
 import java.time.Instant;
 
 @Entity
-@Table(name = "dlq_messages")
+@Table(name = "dlq_messages",
+    uniqueConstraints = @UniqueConstraint(
+        name = "uk_dlq_messages_origin", columnNames = {"original_topic", "original_partition", "original_offset"}),
+    indexes = {
+        // Keyset paging seeks on (created_at, id); requeued_count filters requeueable pages in the index
+        @Index(name = "idx_dlq_messages_created_at", columnList = "created_at, id, requeued_count"),
+        @Index(name = "idx_dlq_messages_message_key", columnList = "message_key, created_at"),
+        // Retention purges each topic oldest first
+        @Index(name = "idx_dlq_messages_topic_created_at", columnList = "original_topic, created_at, id")
+    })
 public class DlqMessage {
 
+    // Times a message may be requeued from the DLQ
+    public static final int MAX_REQUEUES = 3;
+
+    public static final String ID_SEQUENCE = "dlq_message_seq";
+
+    // Each sequence value reserves a block of ids starting at that value (pooled-lo), shared
+    // by Hibernate and the JDBC batch inserts of DlqMessageRepositoryImpl
+    public static final int ID_BLOCK_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @GenericGenerator(name = ID_SEQUENCE, type = SequenceStyleGenerator.class, parameters = {
+        @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = ID_SEQUENCE),
+        @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "" + ID_BLOCK_SIZE),
+        @Parameter(name = SequenceStyleGenerator.OPT_PARAM, value = "pooled-lo")
+    })
     private Long id;
 
     @Column(name = "message_key", nullable = false)
@@ -35,9 +62,13 @@ public class DlqMessage {
     @Column(name = "last_error", columnDefinition = "TEXT")
     private String lastError;
 
+    // Only set on rows written before stack traces were deduplicated
     @Column(name = "stacktrace", columnDefinition = "TEXT")
     private String stacktrace;
 
+    @Column(name = "stack_trace_fingerprint", length = 16)
+    private String stackTraceFingerprint;
+
     @Column(name = "created_at", nullable = false)
     private Instant createdAt;
 
@@ -101,6 +132,9 @@ public class DlqMessage {
     public String getStacktrace() { return stacktrace; }
     public void setStacktrace(String stacktrace) { this.stacktrace = stacktrace; }
 
+    public String getStackTraceFingerprint() { return stackTraceFingerprint; }
+    public void setStackTraceFingerprint(String stackTraceFingerprint) { this.stackTraceFingerprint = stackTraceFingerprint; }
+
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
 
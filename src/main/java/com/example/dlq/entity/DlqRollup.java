@@ -0,0 +1,101 @@
+package com.example.dlq.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Pending DLQ messages counted per original topic, error fingerprint and hour of
+ * {@code created_at}. Rows are maintained by {@code DlqMessageRepositoryImpl} in the
+ * transaction that inserts, deletes or first requeues the messages, so aggregate queries
+ * read one row per group instead of every message. {@code first_seen} and
+ * {@code last_seen} only ever widen.
+ */
+@Entity
+@Table(name = "dlq_rollup")
+public class DlqRollup {
+
+    // Stands in for messages without a stack trace fingerprint, as key columns are not null
+    public static final String NO_FINGERPRINT = "";
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "message_count", nullable = false)
+    private long messageCount;
+
+    @Column(name = "first_seen", nullable = false)
+    private Instant firstSeen;
+
+    @Column(name = "last_seen", nullable = false)
+    private Instant lastSeen;
+
+    // UTF-8 size of the stored message values
+    @Column(name = "total_bytes", nullable = false)
+    private long totalBytes;
+
+    // Default constructor
+    public DlqRollup() {}
+
+    // Getters and Setters
+    public Key getKey() { return key; }
+    public void setKey(Key key) { this.key = key; }
+
+    public long getMessageCount() { return messageCount; }
+    public void setMessageCount(long messageCount) { this.messageCount = messageCount; }
+
+    public Instant getFirstSeen() { return firstSeen; }
+    public void setFirstSeen(Instant firstSeen) { this.firstSeen = firstSeen; }
+
+    public Instant getLastSeen() { return lastSeen; }
+    public void setLastSeen(Instant lastSeen) { this.lastSeen = lastSeen; }
+
+    public long getTotalBytes() { return totalBytes; }
+    public void setTotalBytes(long totalBytes) { this.totalBytes = totalBytes; }
+
+    @Embeddable
+    public static class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "original_topic", nullable = false)
+        private String originalTopic;
+
+        @Column(name = "error_fingerprint", length = 16, nullable = false)
+        private String errorFingerprint;
+
+        @Column(name = "hour_start", nullable = false)
+        private Instant hourStart;
+
+        public Key() {}
+
+        public Key(String originalTopic, String errorFingerprint, Instant hourStart) {
+            this.originalTopic = originalTopic;
+            this.errorFingerprint = errorFingerprint;
+            this.hourStart = hourStart;
+        }
+
+        public String getOriginalTopic() { return originalTopic; }
+        public String getErrorFingerprint() { return errorFingerprint; }
+        public Instant getHourStart() { return hourStart; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return originalTopic.equals(other.originalTopic) && errorFingerprint.equals(other.errorFingerprint)
+                && hourStart.equals(other.hourStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(originalTopic, errorFingerprint, hourStart);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.dlq.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * A distinct stack trace, stored once and referenced from {@link DlqMessage} by fingerprint.
+ */
+@Entity
+@Table(name = "stack_traces")
+public class StackTrace {
+
+    @Id
+    @Column(name = "fingerprint", length = 16)
+    private String fingerprint;
+
+    @Column(name = "exception_class", nullable = false)
+    private String exceptionClass;
+
+    @Column(name = "trace", columnDefinition = "TEXT", nullable = false)
+    private String trace;
+
+    @Column(name = "first_seen_at", nullable = false)
+    private Instant firstSeenAt;
+
+    // Default constructor
+    public StackTrace() {}
+
+    public StackTrace(String fingerprint, String exceptionClass, String trace) {
+        this.fingerprint = fingerprint;
+        this.exceptionClass = exceptionClass;
+        this.trace = trace;
+        this.firstSeenAt = Instant.now();
+    }
+
+    // Getters and Setters
+    public String getFingerprint() { return fingerprint; }
+    public void setFingerprint(String fingerprint) { this.fingerprint = fingerprint; }
+
+    public String getExceptionClass() { return exceptionClass; }
+    public void setExceptionClass(String exceptionClass) { this.exceptionClass = exceptionClass; }
+
+    public String getTrace() { return trace; }
+    public void setTrace(String trace) { this.trace = trace; }
+
+    public Instant getFirstSeenAt() { return firstSeenAt; }
+    public void setFirstSeenAt(Instant firstSeenAt) { this.firstSeenAt = firstSeenAt; }
+}
@@ -0,0 +1,226 @@
+package com.example.dlq.job;
+
+import com.example.dlq.model.HeaderCodec;
+import com.example.dlq.model.ReplayRequest;
+import com.example.dlq.service.RetryService;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Replays records straight from the DLQ topic, without the database copy: a dedicated
+ * consumer is assigned the requested partitions, seeks to the start of the offset or time
+ * range, and every record up to its end that matches the header predicate is republished to
+ * the main topic with its original value and headers (see {@link RetryService#replayFromDlq}).
+ * Sends are paced to {@code messagesPerSecond}.
+ * <p>
+ * The consumer never commits offsets or joins a group, so replays do not disturb the DLQ
+ * consumer and may be repeated. A record whose send fails is counted as failed and not
+ * retried.
+ */
+@Service
+public class DlqReplayService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DlqReplayService.class);
+
+    static final String JOB_TYPE = "replay";
+
+    private static final String REPLAY_GROUP = "dlq-replay";
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final ConsumerFactory<String, byte[]> consumerFactory;
+    private final RetryService retryService;
+    private final JobRunner jobRunner;
+    private final String dlqTopic;
+    private final int batchSize;
+    private final double defaultMessagesPerSecond;
+
+    public DlqReplayService(ConsumerFactory<String, byte[]> consumerFactory,
+                            RetryService retryService,
+                            JobRunner jobRunner,
+                            @Value("${kafka.topics.dlq}") String dlqTopic,
+                            @Value("${dlq.replay.batch-size:500}") int batchSize,
+                            @Value("${dlq.replay.messages-per-second:1000}") double defaultMessagesPerSecond) {
+        this.consumerFactory = consumerFactory;
+        this.retryService = retryService;
+        this.jobRunner = jobRunner;
+        this.dlqTopic = dlqTopic;
+        this.batchSize = batchSize;
+        this.defaultMessagesPerSecond = defaultMessagesPerSecond;
+    }
+
+    /**
+     * Starts a replay job.
+     *
+     * @throws IllegalArgumentException if the request is inconsistent
+     */
+    public Job submit(ReplayRequest request) {
+        request.validate();
+        double rate = request.getMessagesPerSecond() != null ? request.getMessagesPerSecond() : defaultMessagesPerSecond;
+        Throttle throttle = new Throttle(rate);
+        // Polls no larger than a second's worth keep the pace even at low rates
+        int pollSize = (int) Math.max(1, Math.min(batchSize, Math.ceil(rate)));
+        return jobRunner.submit(JOB_TYPE, request, job -> run(job, request, throttle, pollSize));
+    }
+
+    private void run(Job job, ReplayRequest request, Throttle throttle, int pollSize) {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, pollSize);
+        try (Consumer<String, byte[]> consumer =
+                 consumerFactory.createConsumer(REPLAY_GROUP, null, "-replay", overrides)) {
+            Map<TopicPartition, Long> endOffsets = seekToRange(consumer, request);
+            while (!endOffsets.isEmpty()) {
+                job.checkCancelled();
+                ConsumerRecords<String, byte[]> records = consumer.poll(POLL_TIMEOUT);
+
+                List<ConsumerRecord<String, byte[]>> matched = new ArrayList<>(records.count());
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    Long end = endOffsets.get(new TopicPartition(record.topic(), record.partition()));
+                    if (end == null || record.offset() >= end) {
+                        continue;
+                    }
+                    job.addRead(1);
+                    if (matches(record.headers(), request.getHeaderContains())) {
+                        matched.add(record);
+                    }
+                }
+                replay(job, matched, request.getRequeuedBy(), throttle);
+
+                // Positions also move past transaction markers, so they and not the last record end a partition
+                Iterator<Map.Entry<TopicPartition, Long>> partitions = endOffsets.entrySet().iterator();
+                while (partitions.hasNext()) {
+                    Map.Entry<TopicPartition, Long> partition = partitions.next();
+                    if (consumer.position(partition.getKey()) >= partition.getValue()) {
+                        consumer.pause(List.of(partition.getKey()));
+                        partitions.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Assigns the requested partitions and seeks each to the start of its range. Returns the
+     * exclusive end offset of every partition with records in range.
+     */
+    private Map<TopicPartition, Long> seekToRange(Consumer<String, byte[]> consumer, ReplayRequest request) {
+        List<TopicPartition> partitions = consumer.partitionsFor(dlqTopic).stream()
+            .filter(info -> request.getPartition() == null || info.partition() == request.getPartition())
+            .map(info -> new TopicPartition(info.topic(), info.partition()))
+            .toList();
+        if (partitions.isEmpty()) {
+            throw new IllegalArgumentException("No partition " + request.getPartition() + " on " + dlqTopic);
+        }
+        consumer.assign(partitions);
+
+        Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+        // Without an upper bound the replay ends where the topic ended when it started
+        Map<TopicPartition, Long> latest = consumer.endOffsets(partitions);
+        Map<TopicPartition, Long> start = request.getFromTime() != null
+            ? offsetsAt(consumer, partitions, request.getFromTime(), latest)
+            : new HashMap<>(beginning);
+        Map<TopicPartition, Long> end = request.getToTime() != null
+            ? offsetsAt(consumer, partitions, request.getToTime(), latest)
+            : new HashMap<>(latest);
+        for (TopicPartition partition : partitions) {
+            if (request.getFromOffset() != null) {
+                start.put(partition, Math.max(request.getFromOffset(), beginning.get(partition)));
+            }
+            if (request.getToOffset() != null) {
+                end.put(partition, Math.min(request.getToOffset(), latest.get(partition)));
+            }
+        }
+
+        Map<TopicPartition, Long> endOffsets = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            if (start.get(partition) < end.get(partition)) {
+                consumer.seek(partition, start.get(partition));
+                endOffsets.put(partition, end.get(partition));
+            } else {
+                consumer.pause(List.of(partition));
+            }
+        }
+        logger.info("Replaying {} from {} to {}", dlqTopic, start, endOffsets);
+        return endOffsets;
+    }
+
+    private static Map<TopicPartition, Long> offsetsAt(Consumer<String, byte[]> consumer, List<TopicPartition> partitions,
+                                                       Instant time, Map<TopicPartition, Long> latest) {
+        Map<TopicPartition, Long> timestamps = new HashMap<>();
+        partitions.forEach(partition -> timestamps.put(partition, time.toEpochMilli()));
+        Map<TopicPartition, OffsetAndTimestamp> found = consumer.offsetsForTimes(timestamps);
+
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            // No record at or after the time: the range starts or ends at the end of the partition
+            OffsetAndTimestamp offset = found.get(partition);
+            offsets.put(partition, offset != null ? offset.offset() : latest.get(partition));
+        }
+        return offsets;
+    }
+
+    // Each named header must be present with a value containing the given text
+    static boolean matches(Headers headers, Map<String, String> headerContains) {
+        if (headerContains == null) {
+            return true;
+        }
+        for (Map.Entry<String, String> predicate : headerContains.entrySet()) {
+            Header header = headers.lastHeader(predicate.getKey());
+            String value = header != null ? HeaderCodec.decodeString(header.value()) : null;
+            if (value == null || !value.contains(predicate.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void replay(Job job, List<ConsumerRecord<String, byte[]>> records, String requeuedBy, Throttle throttle) {
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            throttle.acquire(records.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted");
+        }
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, byte[]> record : records) {
+            sends.add(retryService.replayFromDlq(record, requeuedBy));
+        }
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                sends.get(i).join();
+                job.addProcessed(1);
+            } catch (Exception e) {
+                ConsumerRecord<String, byte[]> record = records.get(i);
+                logger.error("Failed to replay DLQ record {}-{}@{}: {}",
+                            record.topic(), record.partition(), record.offset(), e.getMessage());
+                job.addFailed(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.dlq.job;
+
+import java.time.Instant;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a background job run by the {@link JobRunner}. Counters are updated by the job
+ * thread and may be read at any time: items read, items processed (requeued, replayed or
+ * purged) and items that failed. Cancellation is cooperative, checked by the job between
+ * units of work.
+ */
+public class Job {
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+
+    private final String id;
+    private final String type;
+    private final Object parameters;
+    private final Instant startedAt = Instant.now();
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile Status status = Status.RUNNING;
+    private volatile boolean cancelRequested;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    Job(String id, String type, Object parameters) {
+        this.id = id;
+        this.type = type;
+        this.parameters = parameters;
+    }
+
+    public String getId() { return id; }
+    public String getType() { return type; }
+    public Object getParameters() { return parameters; }
+    public Status getStatus() { return status; }
+    public boolean isCancelRequested() { return cancelRequested; }
+    public Instant getStartedAt() { return startedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public String getError() { return error; }
+    public long getRead() { return read.get(); }
+    public long getProcessed() { return processed.get(); }
+    public long getFailed() { return failed.get(); }
+
+    public void addRead(long count) {
+        read.addAndGet(count);
+    }
+
+    public void addProcessed(long count) {
+        processed.addAndGet(count);
+    }
+
+    public void addFailed(long count) {
+        failed.addAndGet(count);
+    }
+
+    /**
+     * Aborts the job with a {@link CancellationException} if cancellation was requested.
+     */
+    public void checkCancelled() {
+        if (cancelRequested) {
+            throw new CancellationException("Job " + id + " cancelled");
+        }
+    }
+
+    void requestCancel() {
+        cancelRequested = true;
+    }
+
+    void finish(Status status, String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.status = status;
+    }
+}
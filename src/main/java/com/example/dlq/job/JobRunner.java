@@ -0,0 +1,121 @@
+package com.example.dlq.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs long operator jobs (bulk requeue, replay) on a small pool of background threads and
+ * keeps their status for the job-status endpoint. Only the most recent finished jobs are
+ * retained.
+ */
+@Component
+public class JobRunner implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobRunner.class);
+
+    private static final int MAX_RETAINED_FINISHED = 100;
+
+    @FunctionalInterface
+    public interface Task {
+        void run(Job job) throws Exception;
+    }
+
+    private final ExecutorService executor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public JobRunner(@Value("${dlq.jobs.concurrency:2}") int concurrency) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(concurrency, task -> {
+            Thread thread = new Thread(task, "dlq-job-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts the task and returns its job at once; jobs beyond the pool size wait their turn
+     * in status {@code RUNNING} with no progress.
+     */
+    public Job submit(String type, Object parameters, Task task) {
+        pruneFinished();
+        Job job = new Job(UUID.randomUUID().toString(), type, parameters);
+        jobs.put(job.getId(), job);
+        executor.execute(() -> run(job, task));
+        logger.info("Submitted {} job {}: {}", type, job.getId(), parameters);
+        return job;
+    }
+
+    public Optional<Job> get(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public List<Job> list() {
+        return jobs.values().stream()
+            .sorted(Comparator.comparing(Job::getStartedAt).reversed())
+            .toList();
+    }
+
+    /**
+     * Asks a running job to stop after its current unit of work.
+     */
+    public boolean cancel(String id) {
+        Job job = jobs.get(id);
+        if (job == null || job.getStatus() != Job.Status.RUNNING) {
+            return false;
+        }
+        job.requestCancel();
+        logger.info("Cancellation requested for {} job {}", job.getType(), id);
+        return true;
+    }
+
+    private void run(Job job, Task task) {
+        try {
+            job.checkCancelled();
+            task.run(job);
+            job.finish(Job.Status.COMPLETED, null);
+            logger.info("{} job {} completed: read={}, processed={}, failed={}",
+                       job.getType(), job.getId(), job.getRead(), job.getProcessed(), job.getFailed());
+        } catch (CancellationException e) {
+            job.finish(Job.Status.CANCELLED, null);
+            logger.info("{} job {} cancelled: read={}, processed={}", job.getType(), job.getId(), job.getRead(), job.getProcessed());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish(Job.Status.CANCELLED, "Interrupted");
+        } catch (Exception e) {
+            job.finish(Job.Status.FAILED, e.getMessage());
+            logger.error("{} job {} failed: {}", job.getType(), job.getId(), e.getMessage(), e);
+        }
+    }
+
+    private void pruneFinished() {
+        List<Job> finished = jobs.values().stream()
+            .filter(job -> job.getStatus() != Job.Status.RUNNING)
+            .sorted(Comparator.comparing(Job::getFinishedAt))
+            .toList();
+        for (int i = 0; i < finished.size() - MAX_RETAINED_FINISHED; i++) {
+            jobs.remove(finished.get(i).getId());
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        jobs.values().forEach(Job::requestCancel);
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
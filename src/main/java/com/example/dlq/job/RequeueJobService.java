@@ -0,0 +1,127 @@
+package com.example.dlq.job;
+
+import com.example.dlq.entity.DlqMessage;
+import com.example.dlq.model.RequeueFilter;
+import com.example.dlq.repository.DlqMessageRepository;
+import com.example.dlq.service.RetryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Requeues every DLQ message matching a filter as a background job. Matching rows are
+ * streamed oldest first through a database cursor, sent to the main topic in batches paced
+ * to {@code messagesPerSecond}, and each batch's requeue metadata is recorded with one
+ * batched update once its sends are acknowledged. Messages whose send fails are left as they
+ * were and counted as failed.
+ * <p>
+ * A batch is sent before it is recorded, so a crash or database error in between can requeue
+ * its messages again on the next run.
+ */
+@Service
+public class RequeueJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequeueJobService.class);
+
+    static final String JOB_TYPE = "requeue";
+
+    private final DlqMessageRepository dlqMessageRepository;
+    private final RetryService retryService;
+    private final JobRunner jobRunner;
+    private final TransactionTemplate readTemplate;
+    private final TransactionTemplate writeTemplate;
+    private final int batchSize;
+    private final int fetchSize;
+    private final double defaultMessagesPerSecond;
+
+    public RequeueJobService(DlqMessageRepository dlqMessageRepository,
+                             RetryService retryService,
+                             JobRunner jobRunner,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${dlq.requeue.batch-size:500}") int batchSize,
+                             @Value("${dlq.requeue.fetch-size:500}") int fetchSize,
+                             @Value("${dlq.requeue.messages-per-second:1000}") double defaultMessagesPerSecond) {
+        this.dlqMessageRepository = dlqMessageRepository;
+        this.retryService = retryService;
+        this.jobRunner = jobRunner;
+        // Cursors need a transaction on some databases (PostgreSQL streams only outside auto-commit)
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+        // Each batch commits on its own while the cursor stays open
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.writeTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.fetchSize = fetchSize;
+        this.defaultMessagesPerSecond = defaultMessagesPerSecond;
+    }
+
+    /**
+     * Starts a requeue job; {@code messagesPerSecond} overrides the configured rate.
+     */
+    public Job submit(RequeueFilter filter, String requeuedBy, Double messagesPerSecond) {
+        double rate = messagesPerSecond != null ? messagesPerSecond : defaultMessagesPerSecond;
+        Throttle throttle = new Throttle(rate);
+        // Batches no larger than a second's worth keep the pace even at low rates
+        int size = (int) Math.max(1, Math.min(batchSize, Math.ceil(rate)));
+        return jobRunner.submit(JOB_TYPE, filter, job -> run(job, filter, requeuedBy, throttle, size));
+    }
+
+    private void run(Job job, RequeueFilter filter, String requeuedBy, Throttle throttle, int size) {
+        List<DlqMessage> batch = new ArrayList<>(size);
+        readTemplate.executeWithoutResult(status ->
+            dlqMessageRepository.streamRequeueable(filter, DlqMessage.MAX_REQUEUES, fetchSize, message -> {
+                job.addRead(1);
+                batch.add(message);
+                if (batch.size() >= size) {
+                    requeue(job, batch, requeuedBy, throttle);
+                    batch.clear();
+                }
+            }));
+        if (!batch.isEmpty()) {
+            requeue(job, batch, requeuedBy, throttle);
+        }
+    }
+
+    private void requeue(Job job, List<DlqMessage> batch, String requeuedBy, Throttle throttle) {
+        job.checkCancelled();
+        try {
+            throttle.acquire(batch.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted");
+        }
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        for (DlqMessage message : batch) {
+            sends.add(retryService.requeueFromDlq(message.getMessageKey(), message.getMessageValue(), requeuedBy));
+        }
+        List<DlqMessage> sent = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                sends.get(i).join();
+                sent.add(batch.get(i));
+            } catch (Exception e) {
+                logger.error("Failed to requeue message: id={}, error={}", batch.get(i).getId(), e.getMessage());
+            }
+        }
+
+        Instant requeuedAt = Instant.now();
+        if (!sent.isEmpty()) {
+            writeTemplate.executeWithoutResult(status ->
+                dlqMessageRepository.markRequeued(sent, requeuedBy, requeuedAt, DlqMessage.MAX_REQUEUES));
+        }
+        job.addProcessed(sent.size());
+        job.addFailed(batch.size() - sent.size());
+        logger.debug("Requeue job {} batch: sent={}, failed={}", job.getId(), sent.size(), batch.size() - sent.size());
+    }
+}
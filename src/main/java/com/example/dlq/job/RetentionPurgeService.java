@@ -0,0 +1,212 @@
+package com.example.dlq.job;
+
+import com.example.dlq.config.RetentionProperties;
+import com.example.dlq.entity.DlqMessage;
+import com.example.dlq.repository.DlqMessageRepository;
+import com.example.dlq.service.DlqRateTracker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Expires DLQ messages per original topic, by age ({@code ttl}) and by count
+ * ({@code maxRows}, the newest rows are kept). Each purge runs as a background job that
+ * deletes oldest first, in chunks of {@code chunkSize} rows seeked on
+ * {@code (original_topic, created_at, id)}, one short transaction per chunk. Rows past the
+ * age limit go first; the topic is then counted and its oldest rows beyond {@code maxRows}
+ * are deleted the same way. The rollup and the rate tracker are updated with each chunk.
+ * <p>
+ * With archiving enabled, each chunk is appended to a gzipped JSON-lines file, one per run,
+ * before it is deleted. A chunk whose delete fails is archived again by the next run.
+ */
+@Service
+public class RetentionPurgeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetentionPurgeService.class);
+
+    static final String JOB_TYPE = "retention-purge";
+
+    private static final DateTimeFormatter ARCHIVE_TIMESTAMP =
+        DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final DlqMessageRepository dlqMessageRepository;
+    private final DlqRateTracker rateTracker;
+    private final JobRunner jobRunner;
+    private final RetentionProperties properties;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Timer chunkTimer;
+
+    private Job current;
+
+    public RetentionPurgeService(DlqMessageRepository dlqMessageRepository,
+                                 DlqRateTracker rateTracker,
+                                 JobRunner jobRunner,
+                                 RetentionProperties properties,
+                                 ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.dlqMessageRepository = dlqMessageRepository;
+        this.rateTracker = rateTracker;
+        this.jobRunner = jobRunner;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.chunkTimer = Timer.builder("dlq.retention.purge")
+                .description("Time taken to archive and delete a chunk of expired DLQ messages")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${dlq.retention.interval:PT1H}",
+               initialDelayString = "${dlq.retention.initial-delay:PT5M}")
+    public void scheduledPurge() {
+        if (properties.isEnabled()) {
+            submit();
+        }
+    }
+
+    /**
+     * Starts a purge job, unless one is still running.
+     */
+    public synchronized Optional<Job> submit() {
+        if (current != null && current.getStatus() == Job.Status.RUNNING) {
+            logger.info("Retention purge {} still running, not starting another", current.getId());
+            return Optional.empty();
+        }
+        current = jobRunner.submit(JOB_TYPE, properties, this::purge);
+        return Optional.of(current);
+    }
+
+    void purge(Job job) throws IOException {
+        long start = System.nanoTime();
+        try (ArchiveWriter archive = properties.getArchive().isEnabled() ? new ArchiveWriter(job) : null) {
+            for (String topic : dlqMessageRepository.findOriginalTopics()) {
+                purgeTopic(job, topic, properties.policyFor(topic), archive);
+            }
+        }
+        logger.info("Retention purge {} deleted {} DLQ messages in {}ms",
+                   job.getId(), job.getProcessed(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void purgeTopic(Job job, String topic, RetentionProperties.Policy policy, ArchiveWriter archive) {
+        if (policy.getTtl() != null) {
+            Instant cutoff = Instant.now().minus(policy.getTtl());
+            purgeOldest(job, topic, Long.MAX_VALUE, archive,
+                limit -> dlqMessageRepository.findOlderThanForTopic(topic, cutoff, Long.MIN_VALUE, limit));
+        }
+        if (policy.getMaxRows() != null && policy.getMaxRows() > 0) {
+            // Rows arriving meanwhile are newer, so the oldest excess rows are still the ones to go
+            long excess = dlqMessageRepository.countByOriginalTopic(topic) - policy.getMaxRows();
+            purgeOldest(job, topic, excess, archive,
+                limit -> dlqMessageRepository.findOldestForTopic(topic, limit));
+        }
+    }
+
+    /**
+     * Deletes up to {@code rows} of the topic's rows returned by {@code oldest}, a chunk at a time.
+     */
+    private void purgeOldest(Job job, String topic, long rows, ArchiveWriter archive,
+                             Function<Limit, List<DlqMessage>> oldest) {
+        long remaining = rows;
+        while (remaining > 0) {
+            job.checkCancelled();
+            int chunkSize = (int) Math.min(properties.getChunkSize(), remaining);
+            long start = System.nanoTime();
+            List<DlqMessage> chunk = transactionTemplate.execute(status ->
+                purgeChunk(oldest.apply(Limit.of(chunkSize)), archive));
+            if (chunk.isEmpty()) {
+                return;
+            }
+            chunkTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            rateTracker.recordDeleted(chunk.size(), chunk.get(0).getCreatedAt());
+            meterRegistry.counter("dlq.retention.purged", "topic", topic).increment(chunk.size());
+            job.addRead(chunk.size());
+            job.addProcessed(chunk.size());
+            logger.debug("Purged {} DLQ messages from {} up to {}", chunk.size(), topic,
+                        chunk.get(chunk.size() - 1).getCreatedAt());
+            if (chunk.size() < chunkSize) {
+                return;
+            }
+            remaining -= chunk.size();
+        }
+    }
+
+    private List<DlqMessage> purgeChunk(List<DlqMessage> chunk, ArchiveWriter archive) {
+        if (chunk.isEmpty()) {
+            return chunk;
+        }
+        if (archive != null) {
+            archive.write(chunk);
+        }
+        dlqMessageRepository.removeFromRollup(chunk.stream().filter(message -> message.getRequeuedCount() == 0).toList());
+        dlqMessageRepository.deleteAllByIdInBatch(chunk.stream().map(DlqMessage::getId).toList());
+        return chunk;
+    }
+
+    /**
+     * Gzipped JSON lines, created on the first write. Each chunk is flushed to the file
+     * before its delete commits.
+     */
+    private class ArchiveWriter implements Closeable {
+
+        private final Path path;
+        private BufferedWriter writer;
+
+        ArchiveWriter(Job job) {
+            this.path = Path.of(properties.getArchive().getDirectory(), "dlq-purge-"
+                + ARCHIVE_TIMESTAMP.format(job.getStartedAt()) + "-" + job.getId() + ".jsonl.gz");
+        }
+
+        void write(List<DlqMessage> messages) {
+            try {
+                if (writer == null) {
+                    Files.createDirectories(path.getParent());
+                    writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(
+                        Files.newOutputStream(path, StandardOpenOption.CREATE_NEW), 8192, true), StandardCharsets.UTF_8));
+                    logger.info("Archiving purged DLQ messages to {}", path);
+                }
+                for (DlqMessage message : messages) {
+                    writer.write(objectMapper.writeValueAsString(message));
+                    writer.newLine();
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to archive purged DLQ messages to " + path, e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.dlq.job;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces a single job thread to a rate: permits are granted in order, each batch no earlier
+ * than the previous permits allow at {@code permitsPerSecond}.
+ */
+public class Throttle {
+
+    private final double permitsPerSecond;
+    private final long startNanos = System.nanoTime();
+    private long granted;
+
+    public Throttle(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + permitsPerSecond);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    public void acquire(int permits) throws InterruptedException {
+        long dueNanos = startNanos + (long) (granted * 1_000_000_000L / permitsPerSecond);
+        granted += permits;
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.dlq.model;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paged listing. The cursors are absent at either end of the listing.
+ */
+public class CursorPage<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+    private final String prevCursor;
+
+    public CursorPage(List<T> content, String nextCursor, String prevCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.prevCursor = prevCursor;
+    }
+
+    public List<T> getContent() { return content; }
+    public String getNextCursor() { return nextCursor; }
+    public String getPrevCursor() { return prevCursor; }
+
+    public boolean isEmpty() { return content.isEmpty(); }
+}
@@ -0,0 +1,45 @@
+package com.example.dlq.model;
+
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position of a DLQ message in the {@code (created_at, id)} order used for keyset paging.
+ * Clients receive it as an opaque URL-safe token.
+ */
+public record DlqCursor(Instant createdAt, long id) {
+
+    private static final int ENCODED_BYTES = Long.BYTES + Integer.BYTES + Long.BYTES;
+
+    public static DlqCursor of(DlqMessageSummary message) {
+        return new DlqCursor(message.getCreatedAt(), message.getId());
+    }
+
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_BYTES)
+            .putLong(createdAt.getEpochSecond())
+            .putInt(createdAt.getNano())
+            .putLong(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Decodes a token from {@link #encode()}; anything else is rejected with an
+     * {@link IllegalArgumentException}.
+     */
+    public static DlqCursor decode(String token) {
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+        if (bytes.length != ENCODED_BYTES) {
+            throw new IllegalArgumentException("Malformed cursor: " + token);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            Instant createdAt = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+            return new DlqCursor(createdAt, buffer.getLong());
+        } catch (DateTimeException | ArithmeticException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.dlq.model;
+
+import java.time.Instant;
+
+/**
+ * Pending DLQ messages of one original topic and error fingerprint, summed over a window of
+ * rollup hours. The exception class is absent for messages without a stored stack trace.
+ */
+public class DlqErrorGroup {
+
+    private final String originalTopic;
+    private final String errorFingerprint;
+    private final String exceptionClass;
+    private final long messageCount;
+    private final Instant firstSeen;
+    private final Instant lastSeen;
+    private final long totalBytes;
+
+    public DlqErrorGroup(String originalTopic, String errorFingerprint, String exceptionClass,
+                         long messageCount, Instant firstSeen, Instant lastSeen, long totalBytes) {
+        this.originalTopic = originalTopic;
+        this.errorFingerprint = errorFingerprint;
+        this.exceptionClass = exceptionClass;
+        this.messageCount = messageCount;
+        this.firstSeen = firstSeen;
+        this.lastSeen = lastSeen;
+        this.totalBytes = totalBytes;
+    }
+
+    public String getOriginalTopic() { return originalTopic; }
+    public String getErrorFingerprint() { return errorFingerprint; }
+    public String getExceptionClass() { return exceptionClass; }
+    public long getMessageCount() { return messageCount; }
+    public Instant getFirstSeen() { return firstSeen; }
+    public Instant getLastSeen() { return lastSeen; }
+    public long getTotalBytes() { return totalBytes; }
+}
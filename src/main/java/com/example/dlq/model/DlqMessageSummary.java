@@ -0,0 +1,59 @@
+package com.example.dlq.model;
+
+import java.time.Instant;
+
+/**
+ * A DLQ message without its TEXT columns, for list views. The payload and stack trace are
+ * only loaded by the detail view; the last error is cut to a preview by the query.
+ */
+public class DlqMessageSummary {
+
+    public static final int ERROR_PREVIEW_LENGTH = 200;
+
+    private final Long id;
+    private final String messageKey;
+    private final String originalTopic;
+    private final Integer originalPartition;
+    private final Long originalOffset;
+    private final Integer retryCount;
+    private final String errorPreview;
+    private final String stackTraceFingerprint;
+    private final Instant firstSeenTs;
+    private final Instant createdAt;
+    private final Integer requeuedCount;
+    private final String requeuedBy;
+    private final Instant requeuedAt;
+
+    public DlqMessageSummary(Long id, String messageKey, String originalTopic, Integer originalPartition,
+                             Long originalOffset, Integer retryCount, String errorPreview,
+                             String stackTraceFingerprint, Instant firstSeenTs, Instant createdAt,
+                             Integer requeuedCount, String requeuedBy, Instant requeuedAt) {
+        this.id = id;
+        this.messageKey = messageKey;
+        this.originalTopic = originalTopic;
+        this.originalPartition = originalPartition;
+        this.originalOffset = originalOffset;
+        this.retryCount = retryCount;
+        this.errorPreview = errorPreview;
+        this.stackTraceFingerprint = stackTraceFingerprint;
+        this.firstSeenTs = firstSeenTs;
+        this.createdAt = createdAt;
+        this.requeuedCount = requeuedCount;
+        this.requeuedBy = requeuedBy;
+        this.requeuedAt = requeuedAt;
+    }
+
+    public Long getId() { return id; }
+    public String getMessageKey() { return messageKey; }
+    public String getOriginalTopic() { return originalTopic; }
+    public Integer getOriginalPartition() { return originalPartition; }
+    public Long getOriginalOffset() { return originalOffset; }
+    public Integer getRetryCount() { return retryCount; }
+    public String getErrorPreview() { return errorPreview; }
+    public String getStackTraceFingerprint() { return stackTraceFingerprint; }
+    public Instant getFirstSeenTs() { return firstSeenTs; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Integer getRequeuedCount() { return requeuedCount; }
+    public String getRequeuedBy() { return requeuedBy; }
+    public Instant getRequeuedAt() { return requeuedAt; }
+}
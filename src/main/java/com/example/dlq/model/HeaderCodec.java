@@ -0,0 +1,132 @@
+package com.example.dlq.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Encoding of retry header values.
+ * <p>
+ * Numbers and timestamps are written as a version marker byte followed by a fixed-width
+ * big-endian value: 4 bytes for ints, 8 bytes for longs and epoch-millis timestamps.
+ * Readers decode them straight from the header bytes without allocating. Headers written
+ * by older versions (decimal and ISO-8601 strings) start with a printable character, never
+ * with the marker, and are still decoded.
+ * <p>
+ * Strings are always UTF-8.
+ */
+public final class HeaderCodec {
+
+    public static final byte BINARY_V1 = 0x01;
+
+    private static final int INT_LENGTH = 1 + Integer.BYTES;
+    private static final int LONG_LENGTH = 1 + Long.BYTES;
+
+    private HeaderCodec() {
+    }
+
+    public static byte[] encodeInt(int value) {
+        byte[] bytes = new byte[INT_LENGTH];
+        bytes[0] = BINARY_V1;
+        for (int i = INT_LENGTH - 1; i > 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        return bytes;
+    }
+
+    public static byte[] encodeLong(long value) {
+        byte[] bytes = new byte[LONG_LENGTH];
+        bytes[0] = BINARY_V1;
+        for (int i = LONG_LENGTH - 1; i > 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        return bytes;
+    }
+
+    public static byte[] encodeInstant(Instant value) {
+        return encodeLong(value.toEpochMilli());
+    }
+
+    public static byte[] encodeString(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static boolean isBinary(byte[] value) {
+        return value != null && value.length > 0 && value[0] == BINARY_V1;
+    }
+
+    public static int decodeInt(byte[] value, int defaultValue) {
+        long decoded = decodeLong(value, Long.MIN_VALUE);
+        if (decoded == Long.MIN_VALUE || decoded < Integer.MIN_VALUE || decoded > Integer.MAX_VALUE) {
+            return defaultValue;
+        }
+        return (int) decoded;
+    }
+
+    public static long decodeLong(byte[] value, long defaultValue) {
+        if (value == null || value.length == 0) {
+            return defaultValue;
+        }
+        if (value[0] == BINARY_V1) {
+            if (value.length == LONG_LENGTH) {
+                return readBigEndian(value, Long.BYTES);
+            }
+            if (value.length == INT_LENGTH) {
+                return (int) readBigEndian(value, Integer.BYTES);
+            }
+            return defaultValue;
+        }
+        return parseDecimal(value, defaultValue);
+    }
+
+    /**
+     * Decodes a timestamp to epoch millis; legacy ISO-8601 values are parsed as strings.
+     */
+    public static long decodeEpochMillis(byte[] value, long defaultValue) {
+        if (value == null || value.length == 0) {
+            return defaultValue;
+        }
+        if (value[0] == BINARY_V1) {
+            return decodeLong(value, defaultValue);
+        }
+        try {
+            return Instant.parse(new String(value, StandardCharsets.US_ASCII)).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return defaultValue;
+        }
+    }
+
+    public static String decodeString(byte[] value) {
+        return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+
+    private static long readBigEndian(byte[] value, int width) {
+        long result = 0;
+        for (int i = 1; i <= width; i++) {
+            result = (result << 8) | (value[i] & 0xFF);
+        }
+        return result;
+    }
+
+    private static long parseDecimal(byte[] value, long defaultValue) {
+        int i = 0;
+        boolean negative = value[0] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == value.length) {
+            return defaultValue;
+        }
+        long result = 0;
+        for (; i < value.length; i++) {
+            int digit = value[i] - '0';
+            if (digit < 0 || digit > 9 || result > (Long.MAX_VALUE - digit) / 10) {
+                return defaultValue;
+            }
+            result = result * 10 + digit;
+        }
+        return negative ? -result : result;
+    }
+}
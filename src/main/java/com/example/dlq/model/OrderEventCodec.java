@@ -0,0 +1,213 @@
+package com.example.dlq.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Compact binary encoding of {@link OrderEvent}, announced by the {@code content-type}
+ * record header. Records without the header are JSON.
+ * <p>
+ * Layout: a version byte, a byte of presence bits (one per field, in declaration order),
+ * then the present fields. Strings are a varint length followed by UTF-8 bytes, the status
+ * is its ordinal as a varint, the timestamp is zigzag-varint epoch millis, the quantity a
+ * zigzag varint and the amount an 8-byte IEEE 754 double. {@link OrderStatus} constants
+ * may only ever be appended.
+ */
+public final class OrderEventCodec {
+
+    public static final String CONTENT_TYPE = "content-type";
+    public static final String JSON = "application/json";
+    public static final String BINARY = "application/vnd.order-event.v1";
+
+    public static final byte FORMAT_V1 = 0x01;
+
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private static final int ORDER_ID = 1;
+    private static final int CUSTOMER_ID = 1 << 1;
+    private static final int STATUS = 1 << 2;
+    private static final int TIMESTAMP = 1 << 3;
+    private static final int PRODUCT_ID = 1 << 4;
+    private static final int QUANTITY = 1 << 5;
+    private static final int AMOUNT = 1 << 6;
+
+    private OrderEventCodec() {
+    }
+
+    public static byte[] encode(OrderEvent event) {
+        byte[] orderId = utf8(event.getOrderId());
+        byte[] customerId = utf8(event.getCustomerId());
+        byte[] productId = utf8(event.getProductId());
+        long timestamp = event.getTimestamp() != null ? zigzag(event.getTimestamp().toEpochMilli()) : 0;
+        long quantity = event.getQuantity() != null ? zigzag(event.getQuantity()) : 0;
+
+        int size = 2 + sizeOf(orderId) + sizeOf(customerId) + sizeOf(productId);
+        if (event.getStatus() != null) {
+            size += varintSize(event.getStatus().ordinal());
+        }
+        if (event.getTimestamp() != null) {
+            size += varintSize(timestamp);
+        }
+        if (event.getQuantity() != null) {
+            size += varintSize(quantity);
+        }
+        if (event.getAmount() != null) {
+            size += Double.BYTES;
+        }
+
+        Writer out = new Writer(new byte[size]);
+        out.put(FORMAT_V1);
+        out.put((byte) ((orderId != null ? ORDER_ID : 0)
+            | (customerId != null ? CUSTOMER_ID : 0)
+            | (event.getStatus() != null ? STATUS : 0)
+            | (event.getTimestamp() != null ? TIMESTAMP : 0)
+            | (productId != null ? PRODUCT_ID : 0)
+            | (event.getQuantity() != null ? QUANTITY : 0)
+            | (event.getAmount() != null ? AMOUNT : 0)));
+        out.putBytes(orderId);
+        out.putBytes(customerId);
+        if (event.getStatus() != null) {
+            out.putVarint(event.getStatus().ordinal());
+        }
+        if (event.getTimestamp() != null) {
+            out.putVarint(timestamp);
+        }
+        out.putBytes(productId);
+        if (event.getQuantity() != null) {
+            out.putVarint(quantity);
+        }
+        if (event.getAmount() != null) {
+            out.putLong(Double.doubleToLongBits(event.getAmount()));
+        }
+        return out.bytes;
+    }
+
+    /**
+     * Decodes a binary order event; malformed input is rejected with an
+     * {@link IllegalArgumentException}, so the record is treated as a permanent failure.
+     */
+    public static OrderEvent decode(byte[] value) {
+        if (value == null || value.length < 2 || value[0] != FORMAT_V1) {
+            throw new IllegalArgumentException("Malformed binary order event: unknown format");
+        }
+        try {
+            Reader in = new Reader(value, 2);
+            int present = value[1];
+            String orderId = (present & ORDER_ID) != 0 ? in.getString() : null;
+            String customerId = (present & CUSTOMER_ID) != 0 ? in.getString() : null;
+            OrderStatus status = (present & STATUS) != 0 ? STATUSES[(int) in.getVarint()] : null;
+            Instant timestamp = (present & TIMESTAMP) != 0 ? Instant.ofEpochMilli(unzigzag(in.getVarint())) : null;
+            String productId = (present & PRODUCT_ID) != 0 ? in.getString() : null;
+            Integer quantity = (present & QUANTITY) != 0 ? Math.toIntExact(unzigzag(in.getVarint())) : null;
+            Double amount = (present & AMOUNT) != 0 ? Double.longBitsToDouble(in.getLong()) : null;
+            if (in.position != value.length) {
+                throw new IllegalArgumentException("Malformed binary order event: trailing bytes");
+            }
+            return new OrderEvent(orderId, customerId, status, timestamp, productId, quantity, amount);
+        } catch (IndexOutOfBoundsException | ArithmeticException e) {
+            throw new IllegalArgumentException("Malformed binary order event: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int sizeOf(byte[] bytes) {
+        return bytes != null ? varintSize(bytes.length) + bytes.length : 0;
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer {
+
+        private final byte[] bytes;
+        private int position;
+
+        private Writer(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private void put(byte value) {
+            bytes[position++] = value;
+        }
+
+        private void putVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[position++] = (byte) value;
+        }
+
+        private void putBytes(byte[] value) {
+            if (value != null) {
+                putVarint(value.length);
+                System.arraycopy(value, 0, bytes, position, value.length);
+                position += value.length;
+            }
+        }
+
+        private void putLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[position++] = (byte) (value >>> shift);
+            }
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] bytes;
+        private int position;
+
+        private Reader(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        private long getVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = bytes[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed binary order event: varint too long");
+        }
+
+        private String getString() {
+            int length = Math.toIntExact(getVarint());
+            if (length > bytes.length - position) {
+                throw new IndexOutOfBoundsException("string of " + length + " bytes");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private long getLong() {
+            long result = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                result = (result << 8) | (bytes[position++] & 0xFF);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.dlq.model;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Selects records on the DLQ topic to replay. The range is either offsets, which require a
+ * partition, or record timestamps; both ends are optional and the upper end is exclusive.
+ * Without an upper end the replay stops at the end offsets seen when it starts.
+ */
+public class ReplayRequest {
+
+    private Integer partition;
+    private Long fromOffset;
+    private Long toOffset;
+    private Instant fromTime;
+    private Instant toTime;
+    // Header name to a substring its value must contain, e.g. x-last-error
+    private Map<String, String> headerContains;
+    private String requeuedBy = "admin";
+    private Double messagesPerSecond;
+
+    public Integer getPartition() { return partition; }
+    public void setPartition(Integer partition) { this.partition = partition; }
+
+    public Long getFromOffset() { return fromOffset; }
+    public void setFromOffset(Long fromOffset) { this.fromOffset = fromOffset; }
+
+    public Long getToOffset() { return toOffset; }
+    public void setToOffset(Long toOffset) { this.toOffset = toOffset; }
+
+    public Instant getFromTime() { return fromTime; }
+    public void setFromTime(Instant fromTime) { this.fromTime = fromTime; }
+
+    public Instant getToTime() { return toTime; }
+    public void setToTime(Instant toTime) { this.toTime = toTime; }
+
+    public Map<String, String> getHeaderContains() { return headerContains; }
+    public void setHeaderContains(Map<String, String> headerContains) { this.headerContains = headerContains; }
+
+    public String getRequeuedBy() { return requeuedBy; }
+    public void setRequeuedBy(String requeuedBy) { this.requeuedBy = requeuedBy; }
+
+    public Double getMessagesPerSecond() { return messagesPerSecond; }
+    public void setMessagesPerSecond(Double messagesPerSecond) { this.messagesPerSecond = messagesPerSecond; }
+
+    /**
+     * Rejects requests mixing offset and time ranges, offsets without a partition, and
+     * non-positive rates.
+     */
+    public void validate() {
+        boolean offsets = fromOffset != null || toOffset != null;
+        boolean times = fromTime != null || toTime != null;
+        if (offsets && times) {
+            throw new IllegalArgumentException("Give either an offset range or a time range, not both");
+        }
+        if (offsets && partition == null) {
+            throw new IllegalArgumentException("An offset range requires a partition");
+        }
+        if (messagesPerSecond != null && messagesPerSecond <= 0) {
+            throw new IllegalArgumentException("messagesPerSecond must be positive: " + messagesPerSecond);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReplayRequest{partition=" + partition + ", fromOffset=" + fromOffset + ", toOffset=" + toOffset
+            + ", fromTime=" + fromTime + ", toTime=" + toTime + ", headerContains=" + headerContains
+            + ", requeuedBy=" + requeuedBy + ", messagesPerSecond=" + messagesPerSecond + "}";
+    }
+}
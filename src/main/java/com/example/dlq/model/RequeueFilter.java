@@ -0,0 +1,38 @@
+package com.example.dlq.model;
+
+import java.time.Instant;
+
+/**
+ * Selects DLQ messages for a bulk requeue. Absent criteria match everything; the time range
+ * applies to {@code created_at} and is half-open.
+ */
+public class RequeueFilter {
+
+    private Instant from;
+    private Instant to;
+    private String originalTopic;
+    // Substring of the last error
+    private String errorPattern;
+    private String keyPrefix;
+
+    public Instant getFrom() { return from; }
+    public void setFrom(Instant from) { this.from = from; }
+
+    public Instant getTo() { return to; }
+    public void setTo(Instant to) { this.to = to; }
+
+    public String getOriginalTopic() { return originalTopic; }
+    public void setOriginalTopic(String originalTopic) { this.originalTopic = originalTopic; }
+
+    public String getErrorPattern() { return errorPattern; }
+    public void setErrorPattern(String errorPattern) { this.errorPattern = errorPattern; }
+
+    public String getKeyPrefix() { return keyPrefix; }
+    public void setKeyPrefix(String keyPrefix) { this.keyPrefix = keyPrefix; }
+
+    @Override
+    public String toString() {
+        return "RequeueFilter{from=" + from + ", to=" + to + ", originalTopic=" + originalTopic
+            + ", errorPattern=" + errorPattern + ", keyPrefix=" + keyPrefix + "}";
+    }
+}
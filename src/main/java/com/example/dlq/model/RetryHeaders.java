@@ -1,9 +1,10 @@
 package com.example.dlq.model;
 
+import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.Headers;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Optional;
 
 public class RetryHeaders {
     
@@ -11,68 +12,85 @@ public class RetryHeaders {
     public static final String FIRST_SEEN_TS = "x-first-seen-ts";
     public static final String LAST_ERROR = "x-last-error";
     public static final String STACKTRACE = "x-stacktrace";
+    public static final String STACKTRACE_FINGERPRINT = "x-stacktrace-fp";
     public static final String ORIGINAL_TOPIC = "x-original-topic";
     public static final String ORIGINAL_PARTITION = "x-original-partition";
     public static final String ORIGINAL_OFFSET = "x-original-offset";
     public static final String RETRY_UNTIL = "x-retry-until";
     public static final String NEXT_AT = "x-next-at";
+    public static final String RETRY_DELAY_MS = "x-retry-delay-ms";
     public static final String REQUeUED_BY = "x-requeued-by";
     public static final String MAX_REQUEUES = "x-max-requeues";
 
+    // Sentinel for an absent or unreadable timestamp header
+    private static final long ABSENT = Long.MIN_VALUE;
+
     public static int getRetryCount(Headers headers) {
-        return getHeaderAsInt(headers, RETRY_COUNT).orElse(0);
+        return HeaderCodec.decodeInt(value(headers, RETRY_COUNT), 0);
     }
 
     public static Instant getFirstSeenTimestamp(Headers headers) {
-        return getHeaderAsString(headers, FIRST_SEEN_TS)
-                .map(Instant::parse)
-                .orElse(Instant.now());
+        long epochMillis = HeaderCodec.decodeEpochMillis(value(headers, FIRST_SEEN_TS), ABSENT);
+        return epochMillis != ABSENT ? Instant.ofEpochMilli(epochMillis) : Instant.now();
     }
 
     public static String getLastError(Headers headers) {
-        return getHeaderAsString(headers, LAST_ERROR).orElse("Unknown error");
+        return getHeaderAsString(headers, LAST_ERROR, "Unknown error");
+    }
+
+    public static String getStacktrace(Headers headers) {
+        return getHeaderAsString(headers, STACKTRACE, "");
+    }
+
+    public static String getStacktraceFingerprint(Headers headers) {
+        return getHeaderAsString(headers, STACKTRACE_FINGERPRINT, null);
     }
 
     public static String getOriginalTopic(Headers headers) {
-        return getHeaderAsString(headers, ORIGINAL_TOPIC).orElse("unknown");
+        return getHeaderAsString(headers, ORIGINAL_TOPIC, "unknown");
     }
 
     public static int getOriginalPartition(Headers headers) {
-        return getHeaderAsInt(headers, ORIGINAL_PARTITION).orElse(-1);
+        return HeaderCodec.decodeInt(value(headers, ORIGINAL_PARTITION), -1);
     }
 
     public static long getOriginalOffset(Headers headers) {
-        return getHeaderAsLong(headers, ORIGINAL_OFFSET).orElse(-1L);
+        return HeaderCodec.decodeLong(value(headers, ORIGINAL_OFFSET), -1L);
     }
 
     public static Instant getNextAt(Headers headers) {
-        return getHeaderAsString(headers, NEXT_AT)
-                .map(Instant::parse)
-                .orElse(null);
+        long epochMillis = getNextAtMillis(headers);
+        return epochMillis != ABSENT ? Instant.ofEpochMilli(epochMillis) : null;
     }
 
-    public static String getRequeuedBy(Headers headers) {
-        return getHeaderAsString(headers, REQUeUED_BY).orElse(null);
+    /**
+     * Due time in epoch millis, or {@link Long#MIN_VALUE} if the header is absent.
+     */
+    public static long getNextAtMillis(Headers headers) {
+        return HeaderCodec.decodeEpochMillis(value(headers, NEXT_AT), ABSENT);
     }
 
-    public static int getMaxRequeues(Headers headers) {
-        return getHeaderAsInt(headers, MAX_REQUEUES).orElse(3);
+    public static Duration getRetryDelay(Headers headers) {
+        long delayMs = HeaderCodec.decodeLong(value(headers, RETRY_DELAY_MS), -1L);
+        return delayMs >= 0 ? Duration.ofMillis(delayMs) : null;
     }
 
-    private static Optional<String> getHeaderAsString(Headers headers, String key) {
-        if (headers == null) return Optional.empty();
-        var header = headers.lastHeader(key);
-        byte[] value = header != null ? header.value() : null;
-        return value != null ? Optional.of(new String(value)) : Optional.empty();
+    public static String getRequeuedBy(Headers headers) {
+        return getHeaderAsString(headers, REQUeUED_BY, null);
+    }
+
+    public static int getMaxRequeues(Headers headers) {
+        return HeaderCodec.decodeInt(value(headers, MAX_REQUEUES), 3);
     }
 
-    private static Optional<Integer> getHeaderAsInt(Headers headers, String key) {
-        return getHeaderAsString(headers, key)
-                .map(Integer::parseInt);
+    private static byte[] value(Headers headers, String key) {
+        if (headers == null) return null;
+        Header header = headers.lastHeader(key);
+        return header != null ? header.value() : null;
     }
 
-    private static Optional<Long> getHeaderAsLong(Headers headers, String key) {
-        return getHeaderAsString(headers, key)
-                .map(Long::parseLong);
+    private static String getHeaderAsString(Headers headers, String key, String defaultValue) {
+        byte[] value = value(headers, key);
+        return value != null ? HeaderCodec.decodeString(value) : defaultValue;
     }
 }
@@ -1,7 +1,10 @@
 package com.example.dlq.producer;
 
+import com.example.dlq.model.HeaderCodec;
 import com.example.dlq.model.OrderEvent;
+import com.example.dlq.model.OrderEventCodec;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -16,25 +19,40 @@ public class OrderProducer {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderProducer.class);
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    public enum ValueFormat {
+        BINARY,         // OrderEventCodec, announced by the content-type header
+        JSON            // Readable by consumers older than the binary codec
+    }
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
     private final ObjectMapper objectMapper;
+    private final ValueFormat valueFormat;
+    private final byte[] contentType;
 
     @Value("${kafka.topics.main}")
     private String mainTopic;
 
-    public OrderProducer(KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper) {
+    public OrderProducer(KafkaTemplate<String, byte[]> kafkaTemplate, ObjectMapper objectMapper,
+                         @Value("${kafka.producer.value-format:json}") ValueFormat valueFormat) {
         this.kafkaTemplate = kafkaTemplate;
         this.objectMapper = objectMapper;
+        this.valueFormat = valueFormat;
+        this.contentType = HeaderCodec.encodeString(
+            valueFormat == ValueFormat.BINARY ? OrderEventCodec.BINARY : OrderEventCodec.JSON);
     }
 
-    public CompletableFuture<SendResult<String, String>> sendOrder(OrderEvent orderEvent) {
+    public CompletableFuture<SendResult<String, byte[]>> sendOrder(OrderEvent orderEvent) {
         try {
             String key = orderEvent.getOrderId();
-            String value = objectMapper.writeValueAsString(orderEvent);
+            byte[] value = valueFormat == ValueFormat.BINARY
+                ? OrderEventCodec.encode(orderEvent)
+                : objectMapper.writeValueAsBytes(orderEvent);
+            ProducerRecord<String, byte[]> record = new ProducerRecord<>(mainTopic, key, value);
+            record.headers().add(OrderEventCodec.CONTENT_TYPE, contentType);
             
             logger.info("Sending order event: {}", orderEvent.getOrderId());
             
-            return kafkaTemplate.send(mainTopic, key, value)
+            return kafkaTemplate.send(record)
                 .thenApply(result -> {
                     logger.info("Successfully sent order event: {} to topic: {}", 
                                orderEvent.getOrderId(), result.getRecordMetadata().topic());
@@ -1,6 +1,8 @@
 package com.example.dlq.repository;
 
 import com.example.dlq.entity.DlqMessage;
+import com.example.dlq.model.DlqMessageSummary;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -11,19 +13,84 @@ import org.springframework.stereotype.Repository;
 import java.time.Instant;
 import java.util.List;
 
+/**
+ * List queries select {@link DlqMessageSummary} projections, so the TEXT columns are never
+ * read for list views; full entities are loaded by id only.
+ */
 @Repository
-public interface DlqMessageRepository extends JpaRepository<DlqMessage, Long> {
+public interface DlqMessageRepository extends JpaRepository<DlqMessage, Long>, DlqMessageRepositoryCustom {
 
-    Page<DlqMessage> findAllByOrderByCreatedAtDesc(Pageable pageable);
+    String SELECT_SUMMARY = "SELECT new com.example.dlq.model.DlqMessageSummary(d.id, d.messageKey,"
+        + " d.originalTopic, d.originalPartition, d.originalOffset, d.retryCount,"
+        + " SUBSTRING(d.lastError, 1, " + DlqMessageSummary.ERROR_PREVIEW_LENGTH + "),"
+        + " d.stackTraceFingerprint, d.firstSeenTs, d.createdAt, d.requeuedCount, d.requeuedBy, d.requeuedAt)"
+        + " FROM DlqMessage d";
 
-    List<DlqMessage> findByMessageKey(String messageKey);
+    @Query(value = SELECT_SUMMARY + " ORDER BY d.createdAt DESC",
+           countQuery = "SELECT COUNT(d) FROM DlqMessage d")
+    Page<DlqMessageSummary> findAllByOrderByCreatedAtDesc(Pageable pageable);
 
-    @Query("SELECT d FROM DlqMessage d WHERE d.createdAt < :cutoffTime ORDER BY d.createdAt ASC")
-    List<DlqMessage> findOldestMessages(@Param("cutoffTime") Instant cutoffTime);
+    // Keyset paging over (createdAt, id), newest first; served by idx_dlq_messages_created_at
+
+    @Query(SELECT_SUMMARY + " ORDER BY d.createdAt DESC, d.id DESC")
+    List<DlqMessageSummary> findAllByOrderByCreatedAtDescIdDesc(Limit limit);
+
+    @Query(SELECT_SUMMARY + " WHERE d.createdAt <= :createdAt"
+         + " AND (d.createdAt < :createdAt OR d.id < :id) ORDER BY d.createdAt DESC, d.id DESC")
+    List<DlqMessageSummary> findOlderThan(@Param("createdAt") Instant createdAt, @Param("id") Long id, Limit limit);
+
+    @Query(SELECT_SUMMARY + " WHERE d.createdAt >= :createdAt"
+         + " AND (d.createdAt > :createdAt OR d.id > :id) ORDER BY d.createdAt ASC, d.id ASC")
+    List<DlqMessageSummary> findNewerThan(@Param("createdAt") Instant createdAt, @Param("id") Long id, Limit limit);
+
+    @Query(SELECT_SUMMARY + " WHERE d.messageKey = :messageKey ORDER BY d.createdAt DESC")
+    List<DlqMessageSummary> findByMessageKey(@Param("messageKey") String messageKey);
+
+    @Query(SELECT_SUMMARY + " WHERE d.createdAt < :cutoffTime ORDER BY d.createdAt ASC")
+    List<DlqMessageSummary> findOldestMessages(@Param("cutoffTime") Instant cutoffTime);
 
     @Query("SELECT COUNT(d) FROM DlqMessage d WHERE d.createdAt >= :since")
     Long countMessagesSince(@Param("since") Instant since);
 
-    @Query("SELECT d FROM DlqMessage d WHERE d.requeuedCount < :maxRequeues ORDER BY d.createdAt DESC")
-    Page<DlqMessage> findRequeueableMessages(@Param("maxRequeues") Integer maxRequeues, Pageable pageable);
+    // Timestamps only, read from idx_dlq_messages_created_at to rebuild the in-memory rates
+
+    @Query("SELECT d.createdAt FROM DlqMessage d WHERE d.createdAt >= :since")
+    List<Instant> findCreatedAtSince(@Param("since") Instant since);
+
+    @Query("SELECT MIN(d.createdAt) FROM DlqMessage d")
+    Instant findOldestCreatedAt();
+
+    @Query(value = SELECT_SUMMARY + " WHERE d.requeuedCount < :maxRequeues ORDER BY d.createdAt DESC",
+           countQuery = "SELECT COUNT(d) FROM DlqMessage d WHERE d.requeuedCount < :maxRequeues")
+    Page<DlqMessageSummary> findRequeueableMessages(@Param("maxRequeues") Integer maxRequeues, Pageable pageable);
+
+    @Query(SELECT_SUMMARY + " WHERE d.requeuedCount < :maxRequeues ORDER BY d.createdAt DESC, d.id DESC")
+    List<DlqMessageSummary> findRequeueable(@Param("maxRequeues") Integer maxRequeues, Limit limit);
+
+    @Query(SELECT_SUMMARY + " WHERE d.requeuedCount < :maxRequeues AND d.createdAt <= :createdAt"
+         + " AND (d.createdAt < :createdAt OR d.id < :id) ORDER BY d.createdAt DESC, d.id DESC")
+    List<DlqMessageSummary> findRequeueableOlderThan(@Param("maxRequeues") Integer maxRequeues,
+                                                     @Param("createdAt") Instant createdAt, @Param("id") Long id,
+                                                     Limit limit);
+
+    @Query(SELECT_SUMMARY + " WHERE d.requeuedCount < :maxRequeues AND d.createdAt >= :createdAt"
+         + " AND (d.createdAt > :createdAt OR d.id > :id) ORDER BY d.createdAt ASC, d.id ASC")
+    List<DlqMessageSummary> findRequeueableNewerThan(@Param("maxRequeues") Integer maxRequeues,
+                                                     @Param("createdAt") Instant createdAt, @Param("id") Long id,
+                                                     Limit limit);
+
+    // Retention; served by idx_dlq_messages_topic_created_at
+
+    @Query("SELECT DISTINCT d.originalTopic FROM DlqMessage d")
+    List<String> findOriginalTopics();
+
+    long countByOriginalTopic(String originalTopic);
+
+    @Query("SELECT d FROM DlqMessage d WHERE d.originalTopic = :topic ORDER BY d.createdAt, d.id")
+    List<DlqMessage> findOldestForTopic(@Param("topic") String topic, Limit limit);
+
+    @Query("SELECT d FROM DlqMessage d WHERE d.originalTopic = :topic AND d.createdAt <= :createdAt"
+         + " AND (d.createdAt < :createdAt OR d.id < :id) ORDER BY d.createdAt, d.id")
+    List<DlqMessage> findOlderThanForTopic(@Param("topic") String topic, @Param("createdAt") Instant createdAt,
+                                           @Param("id") Long id, Limit limit);
 }
@@ -0,0 +1,39 @@
+package com.example.dlq.repository;
+
+import com.example.dlq.entity.DlqMessage;
+import com.example.dlq.model.RequeueFilter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface DlqMessageRepositoryCustom {
+
+    /**
+     * Inserts the messages with one JDBC batch, skipping any whose original topic, partition
+     * and offset are already stored, and counts the inserted rows into the rollup. Returns
+     * the number of rows inserted.
+     */
+    int insertIgnoringDuplicates(List<DlqMessage> messages);
+
+    /**
+     * Takes pending messages out of the rollup, when they are deleted or requeued for the
+     * first time. Must run in the same transaction as that change.
+     */
+    void removeFromRollup(List<DlqMessage> messages);
+
+    /**
+     * Streams the messages matching the filter with fewer than {@code maxRequeues} requeues,
+     * oldest first, through a cursor of {@code fetchSize} rows. The messages carry only what
+     * a requeue needs: id, key, value, original topic, fingerprint, creation time and
+     * requeue count.
+     */
+    void streamRequeueable(RequeueFilter filter, int maxRequeues, int fetchSize, Consumer<DlqMessage> action);
+
+    /**
+     * Records a requeue of each message with one JDBC batch and takes first requeues out of
+     * the rollup. Returns the messages updated; those that reached {@code maxRequeues}
+     * in the meantime are skipped.
+     */
+    List<DlqMessage> markRequeued(List<DlqMessage> messages, String requeuedBy, Instant requeuedAt, int maxRequeues);
+}
@@ -0,0 +1,319 @@
+package com.example.dlq.repository;
+
+import com.example.dlq.entity.DlqMessage;
+import com.example.dlq.entity.DlqRollup;
+import com.example.dlq.model.RequeueFilter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * JDBC batch inserts for {@link DlqMessage}. Ids are taken from the entity's sequence in
+ * blocks of {@link DlqMessage#ID_BLOCK_SIZE}, the same way Hibernate allocates them, so a
+ * batch needs a sequence round trip only once per block.
+ * <p>
+ * The {@link DlqRollup} rows of the inserted messages are updated in the same transaction,
+ * with one upsert per group rather than per message.
+ */
+class DlqMessageRepositoryImpl implements DlqMessageRepositoryCustom {
+
+    private static final String NEXT_ID_BLOCK = "SELECT NEXT VALUE FOR " + DlqMessage.ID_SEQUENCE;
+
+    // Insert-or-ignore on the unique (original_topic, original_partition, original_offset)
+    private static final String INSERT_IGNORING_DUPLICATES =
+        "MERGE INTO dlq_messages t"
+        + " USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS INTEGER), CAST(? AS BIGINT)))"
+        + " AS s (original_topic, original_partition, original_offset)"
+        + " ON t.original_topic = s.original_topic AND t.original_partition = s.original_partition"
+        + " AND t.original_offset = s.original_offset"
+        + " WHEN NOT MATCHED THEN INSERT (id, message_key, message_value, original_topic, original_partition,"
+        + " original_offset, retry_count, first_seen_ts, last_error, stacktrace, stack_trace_fingerprint,"
+        + " created_at, requeued_count)"
+        + " VALUES (?, ?, ?, s.original_topic, s.original_partition, s.original_offset, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_EXISTING_IDS = "SELECT id FROM dlq_messages WHERE id IN (";
+
+    private static final String ADD_TO_ROLLUP =
+        "MERGE INTO dlq_rollup r"
+        + " USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(16)), CAST(? AS TIMESTAMP WITH TIME ZONE),"
+        + " CAST(? AS BIGINT), CAST(? AS TIMESTAMP WITH TIME ZONE), CAST(? AS TIMESTAMP WITH TIME ZONE),"
+        + " CAST(? AS BIGINT)))"
+        + " AS s (original_topic, error_fingerprint, hour_start, message_count, first_seen, last_seen, total_bytes)"
+        + " ON r.original_topic = s.original_topic AND r.error_fingerprint = s.error_fingerprint"
+        + " AND r.hour_start = s.hour_start"
+        + " WHEN MATCHED THEN UPDATE SET message_count = r.message_count + s.message_count,"
+        + " first_seen = LEAST(r.first_seen, s.first_seen), last_seen = GREATEST(r.last_seen, s.last_seen),"
+        + " total_bytes = r.total_bytes + s.total_bytes"
+        + " WHEN NOT MATCHED THEN INSERT (original_topic, error_fingerprint, hour_start, message_count,"
+        + " first_seen, last_seen, total_bytes)"
+        + " VALUES (s.original_topic, s.error_fingerprint, s.hour_start, s.message_count, s.first_seen,"
+        + " s.last_seen, s.total_bytes)";
+
+    private static final String REMOVE_FROM_ROLLUP =
+        "UPDATE dlq_rollup SET message_count = message_count - ?, total_bytes = total_bytes - ?"
+        + " WHERE original_topic = ? AND error_fingerprint = ? AND hour_start = ?";
+
+    private static final String DELETE_EMPTY_ROLLUP =
+        "DELETE FROM dlq_rollup WHERE original_topic = ? AND error_fingerprint = ? AND hour_start = ?"
+        + " AND message_count <= 0";
+
+    private static final String SELECT_REQUEUEABLE =
+        "SELECT id, message_key, message_value, original_topic, stack_trace_fingerprint, created_at, requeued_count"
+        + " FROM dlq_messages WHERE requeued_count < ?";
+
+    private static final String MARK_REQUEUED =
+        "UPDATE dlq_messages SET requeued_count = requeued_count + 1, requeued_by = ?, requeued_at = ?"
+        + " WHERE id = ? AND requeued_count < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private long nextId;
+    private long blockEnd;
+
+    DlqMessageRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int insertIgnoringDuplicates(List<DlqMessage> messages) {
+        if (messages.isEmpty()) {
+            return 0;
+        }
+        for (DlqMessage message : messages) {
+            message.setId(nextId());
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_IGNORING_DUPLICATES, messages, messages.size(),
+            (statement, message) -> {
+                statement.setString(1, message.getOriginalTopic());
+                statement.setInt(2, message.getOriginalPartition());
+                statement.setLong(3, message.getOriginalOffset());
+                statement.setLong(4, message.getId());
+                statement.setString(5, message.getMessageKey());
+                statement.setString(6, message.getMessageValue());
+                statement.setInt(7, message.getRetryCount());
+                setInstant(statement, 8, message.getFirstSeenTs());
+                statement.setString(9, message.getLastError());
+                statement.setString(10, message.getStacktrace());
+                statement.setString(11, message.getStackTraceFingerprint());
+                setInstant(statement, 12, message.getCreatedAt());
+                statement.setInt(13, message.getRequeuedCount());
+            });
+
+        // The ids were drawn for this call, so the rows found under them are the ones inserted;
+        // batch update counts may be SUCCESS_NO_INFO and cannot tell inserts from skips
+        Set<Long> insertedIds = new HashSet<>(jdbcTemplate.queryForList(
+            SELECT_EXISTING_IDS + String.join(",", Collections.nCopies(messages.size(), "?")) + ")",
+            Long.class, messages.stream().map(DlqMessage::getId).toArray()));
+        List<DlqMessage> inserted = messages.stream()
+            .filter(message -> insertedIds.contains(message.getId()))
+            .toList();
+        addToRollup(inserted);
+        return inserted.size();
+    }
+
+    @Override
+    public void removeFromRollup(List<DlqMessage> messages) {
+        Map<RollupKey, RollupDelta> deltas = new LinkedHashMap<>();
+        for (DlqMessage message : messages) {
+            deltas.computeIfAbsent(RollupKey.of(message), key -> new RollupDelta()).add(message);
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<RollupKey, RollupDelta>> rows = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate(REMOVE_FROM_ROLLUP, rows, rows.size(), (statement, row) -> {
+            statement.setLong(1, row.getValue().count);
+            statement.setLong(2, row.getValue().bytes);
+            setRollupKey(statement, 3, row.getKey());
+        });
+        jdbcTemplate.batchUpdate(DELETE_EMPTY_ROLLUP, rows, rows.size(),
+            (statement, row) -> setRollupKey(statement, 1, row.getKey()));
+    }
+
+    @Override
+    public void streamRequeueable(RequeueFilter filter, int maxRequeues, int fetchSize, Consumer<DlqMessage> action) {
+        StringBuilder sql = new StringBuilder(SELECT_REQUEUEABLE);
+        List<Object> args = new ArrayList<>();
+        args.add(maxRequeues);
+        if (filter.getFrom() != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(OffsetDateTime.ofInstant(filter.getFrom(), ZoneOffset.UTC));
+        }
+        if (filter.getTo() != null) {
+            sql.append(" AND created_at < ?");
+            args.add(OffsetDateTime.ofInstant(filter.getTo(), ZoneOffset.UTC));
+        }
+        if (filter.getOriginalTopic() != null) {
+            sql.append(" AND original_topic = ?");
+            args.add(filter.getOriginalTopic());
+        }
+        if (filter.getErrorPattern() != null) {
+            sql.append(" AND last_error LIKE ? ESCAPE '\\'");
+            args.add("%" + escapeLike(filter.getErrorPattern()) + "%");
+        }
+        if (filter.getKeyPrefix() != null) {
+            sql.append(" AND message_key LIKE ? ESCAPE '\\'");
+            args.add(escapeLike(filter.getKeyPrefix()) + "%");
+        }
+        sql.append(" ORDER BY created_at, id");
+
+        // A dedicated template, as the fetch size applies to every query of a JdbcTemplate
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(fetchSize);
+        streaming.query(sql.toString(), rs -> {
+            action.accept(toRequeueable(rs));
+        }, args.toArray());
+    }
+
+    @Override
+    public List<DlqMessage> markRequeued(List<DlqMessage> messages, String requeuedBy, Instant requeuedAt,
+                                         int maxRequeues) {
+        int[][] counts = jdbcTemplate.batchUpdate(MARK_REQUEUED, messages, messages.size(), (statement, message) -> {
+            statement.setString(1, requeuedBy);
+            setInstant(statement, 2, requeuedAt);
+            statement.setLong(3, message.getId());
+            statement.setInt(4, maxRequeues);
+        });
+
+        List<DlqMessage> marked = new ArrayList<>(messages.size());
+        List<DlqMessage> firstRequeues = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                DlqMessage message = messages.get(index++);
+                // Rows requeued concurrently past the limit are left alone; a driver that reports
+                // SUCCESS_NO_INFO (-2) cannot tell, so such rows count as marked
+                if (count > 0 || count == java.sql.Statement.SUCCESS_NO_INFO) {
+                    marked.add(message);
+                    if (message.getRequeuedCount() == 0) {
+                        firstRequeues.add(message);
+                    }
+                }
+            }
+        }
+        removeFromRollup(firstRequeues);
+        return marked;
+    }
+
+    private void addToRollup(List<DlqMessage> messages) {
+        Map<RollupKey, RollupDelta> deltas = new LinkedHashMap<>();
+        for (DlqMessage message : messages) {
+            deltas.computeIfAbsent(RollupKey.of(message), key -> new RollupDelta()).add(message);
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<RollupKey, RollupDelta>> rows = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate(ADD_TO_ROLLUP, rows, rows.size(), (statement, row) -> {
+            RollupKey key = row.getKey();
+            RollupDelta delta = row.getValue();
+            statement.setString(1, key.originalTopic());
+            statement.setString(2, key.errorFingerprint());
+            setInstant(statement, 3, key.hourStart());
+            statement.setLong(4, delta.count);
+            setInstant(statement, 5, delta.firstSeen);
+            setInstant(statement, 6, delta.lastSeen);
+            statement.setLong(7, delta.bytes);
+        });
+    }
+
+    private synchronized long nextId() {
+        if (nextId >= blockEnd) {
+            Long blockStart = jdbcTemplate.queryForObject(NEXT_ID_BLOCK, Long.class);
+            nextId = blockStart;
+            blockEnd = blockStart + DlqMessage.ID_BLOCK_SIZE;
+        }
+        return nextId++;
+    }
+
+    private static void setInstant(PreparedStatement statement, int index, Instant value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.TIMESTAMP_WITH_TIMEZONE);
+        } else {
+            statement.setObject(index, OffsetDateTime.ofInstant(value, ZoneOffset.UTC));
+        }
+    }
+
+    private static DlqMessage toRequeueable(ResultSet rs) throws SQLException {
+        DlqMessage message = new DlqMessage();
+        message.setId(rs.getLong("id"));
+        message.setMessageKey(rs.getString("message_key"));
+        message.setMessageValue(rs.getString("message_value"));
+        message.setOriginalTopic(rs.getString("original_topic"));
+        message.setStackTraceFingerprint(rs.getString("stack_trace_fingerprint"));
+        message.setCreatedAt(rs.getObject("created_at", OffsetDateTime.class).toInstant());
+        message.setRequeuedCount(rs.getInt("requeued_count"));
+        return message;
+    }
+
+    private static void setRollupKey(PreparedStatement statement, int index, RollupKey key) throws SQLException {
+        statement.setString(index, key.originalTopic());
+        statement.setString(index + 1, key.errorFingerprint());
+        setInstant(statement, index + 2, key.hourStart());
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static long utf8Length(String value) {
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private record RollupKey(String originalTopic, String errorFingerprint, Instant hourStart) {
+
+        static RollupKey of(DlqMessage message) {
+            String fingerprint = message.getStackTraceFingerprint();
+            return new RollupKey(message.getOriginalTopic(),
+                fingerprint != null ? fingerprint : DlqRollup.NO_FINGERPRINT,
+                message.getCreatedAt().truncatedTo(ChronoUnit.HOURS));
+        }
+    }
+
+    private static final class RollupDelta {
+
+        private long count;
+        private Instant firstSeen;
+        private Instant lastSeen;
+        private long bytes;
+
+        private void add(DlqMessage message) {
+            Instant createdAt = message.getCreatedAt();
+            count++;
+            firstSeen = firstSeen == null || createdAt.isBefore(firstSeen) ? createdAt : firstSeen;
+            lastSeen = lastSeen == null || createdAt.isAfter(lastSeen) ? createdAt : lastSeen;
+            bytes += utf8Length(message.getMessageValue());
+        }
+    }
+}
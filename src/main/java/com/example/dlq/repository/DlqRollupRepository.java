@@ -0,0 +1,31 @@
+package com.example.dlq.repository;
+
+import com.example.dlq.entity.DlqRollup;
+import com.example.dlq.model.DlqErrorGroup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Read side of the {@link DlqRollup} table; rows are written by {@link DlqMessageRepositoryCustom}.
+ */
+@Repository
+public interface DlqRollupRepository extends JpaRepository<DlqRollup, DlqRollup.Key> {
+
+    @Query("SELECT new com.example.dlq.model.DlqErrorGroup(r.key.originalTopic, r.key.errorFingerprint,"
+         + " s.exceptionClass, SUM(r.messageCount), MIN(r.firstSeen), MAX(r.lastSeen), SUM(r.totalBytes))"
+         + " FROM DlqRollup r LEFT JOIN StackTrace s ON s.fingerprint = r.key.errorFingerprint"
+         + " WHERE r.key.hourStart >= :since"
+         + " GROUP BY r.key.originalTopic, r.key.errorFingerprint, s.exceptionClass"
+         + " ORDER BY SUM(r.messageCount) DESC")
+    List<DlqErrorGroup> findErrorGroupsSince(@Param("since") Instant since);
+
+    @Query("SELECT r FROM DlqRollup r WHERE r.key.hourStart >= :since"
+         + " AND (:topic IS NULL OR r.key.originalTopic = :topic)"
+         + " ORDER BY r.key.hourStart, r.key.originalTopic, r.key.errorFingerprint")
+    List<DlqRollup> findHourlySince(@Param("since") Instant since, @Param("topic") String topic);
+}
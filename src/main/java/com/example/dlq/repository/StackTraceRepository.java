@@ -0,0 +1,31 @@
+package com.example.dlq.repository;
+
+import com.example.dlq.entity.StackTrace;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface StackTraceRepository extends JpaRepository<StackTrace, String> {
+
+    /**
+     * Inserts the trace unless its fingerprint is already stored; returns 1 if inserted.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "MERGE INTO stack_traces t"
+        + " USING (VALUES (CAST(:fingerprint AS VARCHAR(16)))) AS s (fingerprint)"
+        + " ON t.fingerprint = s.fingerprint"
+        + " WHEN NOT MATCHED THEN INSERT (fingerprint, exception_class, trace, first_seen_at)"
+        + " VALUES (s.fingerprint, :exceptionClass, :trace, :firstSeenAt)",
+        nativeQuery = true)
+    int insertIgnoringDuplicate(@Param("fingerprint") String fingerprint,
+                                @Param("exceptionClass") String exceptionClass,
+                                @Param("trace") String trace,
+                                @Param("firstSeenAt") Instant firstSeenAt);
+}
@@ -0,0 +1,127 @@
+package com.example.dlq.service;
+
+import com.example.dlq.repository.DlqMessageRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory DLQ ingest rates and backlog, so the metrics endpoints never query the table.
+ * <p>
+ * Stored messages are counted per second for the last two minutes and per minute for the
+ * last day. Windows up to a minute are summed from the second buckets, longer ones from the
+ * minute buckets, whose current minute is still filling up. The total count and the oldest
+ * message follow stores and deletes. Everything is rebuilt from the table at startup, before
+ * the DLQ consumer starts.
+ */
+@Service
+public class DlqRateTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(DlqRateTracker.class);
+
+    private static final Duration MAX_WINDOW = Duration.ofDays(1);
+
+    private final DlqMessageRepository dlqMessageRepository;
+    private final SlidingWindowCounter perSecond = new SlidingWindowCounter(Duration.ofSeconds(1), 120);
+    private final SlidingWindowCounter perMinute =
+        new SlidingWindowCounter(Duration.ofMinutes(1), (int) MAX_WINDOW.toMinutes());
+    private final AtomicLong totalCount = new AtomicLong();
+
+    private volatile Instant oldestCreatedAt;
+
+    public DlqRateTracker(DlqMessageRepository dlqMessageRepository) {
+        this.dlqMessageRepository = dlqMessageRepository;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        Instant now = Instant.now();
+        List<Instant> recent = dlqMessageRepository.findCreatedAtSince(now.minus(MAX_WINDOW));
+        recent.forEach(createdAt -> add(createdAt.toEpochMilli(), 1));
+        totalCount.set(dlqMessageRepository.count());
+        oldestCreatedAt = dlqMessageRepository.findOldestCreatedAt();
+        logger.info("Rebuilt DLQ rates: total={}, lastDay={}, oldest={}", totalCount.get(), recent.size(), oldestCreatedAt);
+    }
+
+    /**
+     * Counts {@code inserted} newly stored messages, the earliest of which was created at
+     * {@code earliestCreatedAt}.
+     */
+    public void recordStored(int inserted, Instant earliestCreatedAt) {
+        if (inserted <= 0) {
+            return;
+        }
+        add(System.currentTimeMillis(), inserted);
+        totalCount.addAndGet(inserted);
+        if (oldestCreatedAt == null) {
+            oldestCreatedAt = earliestCreatedAt;
+        }
+    }
+
+    /**
+     * Updates the backlog after a message was deleted. Rates are not reduced: they count
+     * arrivals. Deleting the oldest message looks up the next oldest once, here rather than
+     * on every metrics read.
+     */
+    public void recordDeleted(Instant createdAt) {
+        recordDeleted(1, createdAt);
+    }
+
+    /**
+     * Updates the backlog after {@code deleted} messages, the earliest created at
+     * {@code earliestCreatedAt}, were deleted together.
+     */
+    public void recordDeleted(int deleted, Instant earliestCreatedAt) {
+        totalCount.updateAndGet(count -> Math.max(0, count - deleted));
+        Instant oldest = oldestCreatedAt;
+        if (oldest != null && !earliestCreatedAt.isAfter(oldest)) {
+            oldestCreatedAt = dlqMessageRepository.findOldestCreatedAt();
+        }
+    }
+
+    /**
+     * Messages stored within the window (at most a day) ending now.
+     */
+    public long getCountSince(Duration window) {
+        if (window.compareTo(MAX_WINDOW) > 0) {
+            throw new IllegalArgumentException("Window exceeds " + MAX_WINDOW + ": " + window);
+        }
+        long now = System.currentTimeMillis();
+        if (window.toMillis() <= perSecond.getSize() * perSecond.getUnitMillis()) {
+            return perSecond.sum(now, units(window, perSecond));
+        }
+        return perMinute.sum(now, units(window, perMinute));
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Messages stored longer ago than {@code age} (at most a day). Approximate: deletes lower
+     * only the total, not the windowed counts, so deleting messages younger than {@code age}
+     * makes this undercount, floored at zero, until they age out of the window.
+     */
+    public long getCountOlderThan(Duration age) {
+        return Math.max(0, totalCount.get() - getCountSince(age));
+    }
+
+    public Instant getOldestCreatedAt() {
+        return oldestCreatedAt;
+    }
+
+    private void add(long epochMillis, int count) {
+        perSecond.add(epochMillis, count);
+        perMinute.add(epochMillis, count);
+    }
+
+    private static int units(Duration window, SlidingWindowCounter counter) {
+        return (int) Math.max(1, (window.toMillis() + counter.getUnitMillis() - 1) / counter.getUnitMillis());
+    }
+}
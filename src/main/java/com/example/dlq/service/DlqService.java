@@ -1,17 +1,32 @@
 package com.example.dlq.service;
 
 import com.example.dlq.entity.DlqMessage;
+import com.example.dlq.entity.DlqRollup;
+import com.example.dlq.entity.StackTrace;
+import com.example.dlq.model.CursorPage;
+import com.example.dlq.model.DlqCursor;
+import com.example.dlq.model.DlqErrorGroup;
+import com.example.dlq.model.DlqMessageSummary;
 import com.example.dlq.repository.DlqMessageRepository;
+import com.example.dlq.repository.DlqRollupRepository;
+import com.example.dlq.repository.StackTraceRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 @Service
 public class DlqService {
@@ -20,21 +35,57 @@ public class DlqService {
 
     private final DlqMessageRepository dlqMessageRepository;
     private final RetryService retryService;
+    private final StackTraceRepository stackTraceRepository;
+    private final DlqRollupRepository dlqRollupRepository;
+    private final DlqRateTracker rateTracker;
 
-    public DlqService(DlqMessageRepository dlqMessageRepository, RetryService retryService) {
+    public DlqService(DlqMessageRepository dlqMessageRepository, RetryService retryService,
+                      StackTraceRepository stackTraceRepository, DlqRollupRepository dlqRollupRepository,
+                      DlqRateTracker rateTracker) {
         this.dlqMessageRepository = dlqMessageRepository;
         this.retryService = retryService;
+        this.stackTraceRepository = stackTraceRepository;
+        this.dlqRollupRepository = dlqRollupRepository;
+        this.rateTracker = rateTracker;
     }
 
-    public Page<DlqMessage> getDlqMessages(Pageable pageable) {
+    public Page<DlqMessageSummary> getDlqMessages(Pageable pageable) {
         return dlqMessageRepository.findAllByOrderByCreatedAtDesc(pageable);
     }
 
+    /**
+     * Newest-first page of at most {@code size} messages, after or before a cursor from a
+     * previous page, or the first page if neither is given.
+     */
+    public CursorPage<DlqMessageSummary> getDlqMessages(String after, String before, int size) {
+        return getPage(after, before, size,
+            dlqMessageRepository::findAllByOrderByCreatedAtDescIdDesc,
+            (cursor, limit) -> dlqMessageRepository.findOlderThan(cursor.createdAt(), cursor.id(), limit),
+            (cursor, limit) -> dlqMessageRepository.findNewerThan(cursor.createdAt(), cursor.id(), limit));
+    }
+
     public Optional<DlqMessage> getDlqMessage(Long id) {
         return dlqMessageRepository.findById(id);
     }
 
-    public List<DlqMessage> getDlqMessagesByKey(String messageKey) {
+    public Optional<StackTrace> getStackTrace(String fingerprint) {
+        return stackTraceRepository.findById(fingerprint);
+    }
+
+    /**
+     * Stack trace text of a message: its own column for rows written before deduplication,
+     * otherwise the shared trace it references.
+     */
+    public Optional<String> getStacktrace(DlqMessage message) {
+        if (message.getStacktrace() != null) {
+            return Optional.of(message.getStacktrace());
+        }
+        return Optional.ofNullable(message.getStackTraceFingerprint())
+            .flatMap(stackTraceRepository::findById)
+            .map(StackTrace::getTrace);
+    }
+
+    public List<DlqMessageSummary> getDlqMessagesByKey(String messageKey) {
         return dlqMessageRepository.findByMessageKey(messageKey);
     }
 
@@ -50,7 +101,7 @@ public class DlqService {
         DlqMessage dlqMessage = dlqMessageOpt.get();
         
         // Check if message can be requeued (max requeues limit)
-        if (dlqMessage.getRequeuedCount() >= 3) {
+        if (dlqMessage.getRequeuedCount() >= DlqMessage.MAX_REQUEUES) {
             logger.warn("Message has reached max requeue limit: id={}, requeuedCount={}", 
                        id, dlqMessage.getRequeuedCount());
             return false;
@@ -67,7 +118,10 @@ public class DlqService {
                     return null;
                 });
 
-            // Update requeue metadata
+            // Update requeue metadata; the first requeue resolves the message for the rollup
+            if (dlqMessage.getRequeuedCount() == 0) {
+                dlqMessageRepository.removeFromRollup(List.of(dlqMessage));
+            }
             dlqMessage.setRequeuedCount(dlqMessage.getRequeuedCount() + 1);
             dlqMessage.setRequeuedBy(requeuedBy);
             dlqMessage.setRequeuedAt(Instant.now());
@@ -84,11 +138,33 @@ public class DlqService {
 
     @Transactional
     public void deleteDlqMessage(Long id) {
-        dlqMessageRepository.deleteById(id);
+        dlqMessageRepository.findById(id).ifPresent(dlqMessage -> {
+            if (dlqMessage.getRequeuedCount() == 0) {
+                dlqMessageRepository.removeFromRollup(List.of(dlqMessage));
+            }
+            dlqMessageRepository.delete(dlqMessage);
+            rateTracker.recordDeleted(dlqMessage.getCreatedAt());
+        });
         logger.info("Deleted DLQ message: id={}", id);
     }
 
-    public List<DlqMessage> getOldestMessages(Instant cutoffTime) {
+    /**
+     * Pending messages per original topic and error over the last {@code window}, largest
+     * group first, read from the rollup. The window is rounded out to whole hours.
+     */
+    public List<DlqErrorGroup> getErrorGroups(Duration window) {
+        return dlqRollupRepository.findErrorGroupsSince(rollupSince(window));
+    }
+
+    public List<DlqRollup> getHourlyRollup(Duration window, String originalTopic) {
+        return dlqRollupRepository.findHourlySince(rollupSince(window), originalTopic);
+    }
+
+    private static Instant rollupSince(Duration window) {
+        return Instant.now().minus(window).truncatedTo(ChronoUnit.HOURS);
+    }
+
+    public List<DlqMessageSummary> getOldestMessages(Instant cutoffTime) {
         return dlqMessageRepository.findOldestMessages(cutoffTime);
     }
 
@@ -96,7 +172,55 @@ public class DlqService {
         return dlqMessageRepository.countMessagesSince(since);
     }
 
-    public Page<DlqMessage> getRequeueableMessages(Pageable pageable) {
-        return dlqMessageRepository.findRequeueableMessages(3, pageable);
+    public Page<DlqMessageSummary> getRequeueableMessages(Pageable pageable) {
+        return dlqMessageRepository.findRequeueableMessages(DlqMessage.MAX_REQUEUES, pageable);
+    }
+
+    public CursorPage<DlqMessageSummary> getRequeueableMessages(String after, String before, int size) {
+        return getPage(after, before, size,
+            limit -> dlqMessageRepository.findRequeueable(DlqMessage.MAX_REQUEUES, limit),
+            (cursor, limit) -> dlqMessageRepository.findRequeueableOlderThan(DlqMessage.MAX_REQUEUES, cursor.createdAt(), cursor.id(), limit),
+            (cursor, limit) -> dlqMessageRepository.findRequeueableNewerThan(DlqMessage.MAX_REQUEUES, cursor.createdAt(), cursor.id(), limit));
+    }
+
+    /**
+     * Seeks from the cursor instead of skipping rows, and reads one row more than the page to
+     * know whether another page follows, so no page needs an offset scan or a count. Paging
+     * back reads the newer rows in ascending order; when fewer than a page remain, the first
+     * page is returned.
+     */
+    private static CursorPage<DlqMessageSummary> getPage(String after, String before, int size,
+                                                  Function<Limit, List<DlqMessageSummary>> first,
+                                                  BiFunction<DlqCursor, Limit, List<DlqMessageSummary>> olderThan,
+                                                  BiFunction<DlqCursor, Limit, List<DlqMessageSummary>> newerThan) {
+        if (after != null && before != null) {
+            throw new IllegalArgumentException("Only one of after and before may be given");
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + size);
+        }
+        Limit limit = Limit.of(size + 1);
+
+        if (before != null) {
+            List<DlqMessageSummary> newer = newerThan.apply(DlqCursor.decode(before), limit);
+            if (newer.size() > size) {
+                List<DlqMessageSummary> content = new ArrayList<>(newer.subList(0, size));
+                Collections.reverse(content);
+                return new CursorPage<>(content, cursorOf(content.get(size - 1)), cursorOf(content.get(0)));
+            }
+            after = null;
+        }
+
+        List<DlqMessageSummary> older = after != null
+            ? olderThan.apply(DlqCursor.decode(after), limit)
+            : first.apply(limit);
+        List<DlqMessageSummary> content = older.size() > size ? older.subList(0, size) : older;
+        String nextCursor = older.size() > size ? cursorOf(content.get(size - 1)) : null;
+        String prevCursor = after == null ? null : content.isEmpty() ? after : cursorOf(content.get(0));
+        return new CursorPage<>(content, nextCursor, prevCursor);
+    }
+
+    private static String cursorOf(DlqMessageSummary message) {
+        return DlqCursor.of(message).encode();
     }
 }
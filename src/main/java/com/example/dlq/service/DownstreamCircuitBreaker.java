@@ -0,0 +1,141 @@
+package com.example.dlq.service;
+
+import com.example.dlq.config.CircuitBreakerProperties;
+import com.example.dlq.exception.ErrorType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Circuit breaker around the downstream call in {@link OrderProcessingService}.
+ * <p>
+ * Outcomes are kept in a count-based sliding window. Once at least {@code minimumCalls}
+ * are recorded and the share of transient failures reaches {@code failureRateThreshold}
+ * percent, the breaker opens and rejects calls for {@code waitDurationInOpenState}. It then
+ * half-opens and lets {@code permittedCallsInHalfOpenState} probe calls through: all of them
+ * succeeding closes the breaker, any failure opens it again.
+ * <p>
+ * Permanent errors mean the downstream answered, so they count as successful calls.
+ */
+@Component
+public class DownstreamCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(DownstreamCircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final CircuitBreakerProperties config;
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openUntilMillis;
+    private int probesIssued;
+    private int probesSucceeded;
+
+    public DownstreamCircuitBreaker(CircuitBreakerProperties config) {
+        this.config = config;
+        this.window = new boolean[config.getSlidingWindowSize()];
+    }
+
+    /**
+     * Returns true if a call may go to the downstream system. Every permitted call must be
+     * followed by {@link #onSuccess()} or {@link #onError(ErrorType)}.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (!config.isEnabled()) {
+            return true;
+        }
+        if (state == State.OPEN && System.currentTimeMillis() >= openUntilMillis) {
+            transitionTo(State.HALF_OPEN);
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (probesIssued < config.getPermittedCallsInHalfOpenState()) {
+                    probesIssued++;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            probesSucceeded++;
+            if (probesSucceeded >= config.getPermittedCallsInHalfOpenState()) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onError(ErrorType errorType) {
+        if (errorType == ErrorType.PERMANENT) {
+            onSuccess();
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (windowCount >= config.getMinimumCalls()
+                    && windowFailures * 100 >= config.getFailureRateThreshold() * windowCount) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Time at which an open breaker starts letting probe calls through.
+     */
+    public synchronized Instant getOpenUntil() {
+        return Instant.ofEpochMilli(openUntilMillis);
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void transitionTo(State newState) {
+        logger.warn("Circuit breaker transition: {} -> {} (failures {}/{})",
+                   state, newState, windowFailures, windowCount);
+        state = newState;
+        probesIssued = 0;
+        probesSucceeded = 0;
+        if (newState == State.OPEN) {
+            openUntilMillis = System.currentTimeMillis() + config.getWaitDurationInOpenState().toMillis();
+        } else if (newState == State.CLOSED) {
+            windowIndex = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+    }
+}
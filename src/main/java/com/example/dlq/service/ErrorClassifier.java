@@ -1,59 +1,74 @@
 package com.example.dlq.service;
 
+import com.example.dlq.config.RetryProperties;
 import com.example.dlq.exception.ErrorType;
 import com.example.dlq.exception.OrderProcessingException;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.net.SocketTimeoutException;
-import java.net.UnknownHostException;
-import java.util.concurrent.TimeoutException;
-import java.util.regex.Pattern;
+import java.util.List;
 
+/**
+ * Classifies errors as transient (retry) or permanent (DLQ) using the rules under
+ * {@code retry.classification}.
+ * <p>
+ * Each exception of the cause chain is examined in turn, and the first one with a verdict
+ * decides:
+ * <ol>
+ *   <li>an {@link OrderProcessingException} carries its own error type;</li>
+ *   <li>a configured transient type is transient;</li>
+ *   <li>a configured permanent type is permanent;</li>
+ *   <li>any other exception is permanent if its message contains a permanent keyword.</li>
+ * </ol>
+ * An error without a verdict is transient. The rule for an exception type is resolved once
+ * and cached per class; messages are scanned by a single-pass {@link KeywordMatcher}.
+ */
 @Service
 public class ErrorClassifier {
 
-    // Patterns for permanent errors
-    private static final Pattern VALIDATION_ERROR_PATTERN = Pattern.compile(
-        "(?i).*(validation|invalid|malformed|schema|format).*"
-    );
-    
-    private static final Pattern BUSINESS_LOGIC_ERROR_PATTERN = Pattern.compile(
-        "(?i).*(insufficient|not found|duplicate|conflict|forbidden).*"
-    );
+    private enum TypeRule {
+        OWN_ERROR_TYPE,     // OrderProcessingException
+        TRANSIENT,
+        PERMANENT,
+        MESSAGE             // Decided by the message keywords, otherwise by the cause
+    }
 
-    public ErrorType classifyError(Throwable throwable) {
-        if (throwable == null) {
-            return ErrorType.TRANSIENT;
-        }
+    private final List<Class<? extends Throwable>> transientTypes;
+    private final List<Class<? extends Throwable>> permanentTypes;
+    private final KeywordMatcher permanentKeywords;
+    private final int maxCauseDepth;
 
-        // Check if it's our custom exception
-        if (throwable instanceof OrderProcessingException) {
-            return ((OrderProcessingException) throwable).getErrorType();
+    private final ClassValue<TypeRule> typeRules = new ClassValue<>() {
+        @Override
+        protected TypeRule computeValue(Class<?> type) {
+            return ruleFor(type);
         }
+    };
 
-        // Network/IO related - transient
-        if (throwable instanceof IOException ||
-            throwable instanceof SocketTimeoutException ||
-            throwable instanceof TimeoutException ||
-            throwable instanceof UnknownHostException) {
-            return ErrorType.TRANSIENT;
-        }
+    public ErrorClassifier(RetryProperties retryProperties) {
+        RetryProperties.Classification classification = retryProperties.getClassification();
+        this.transientTypes = List.copyOf(classification.getTransientTypes());
+        this.permanentTypes = List.copyOf(classification.getPermanentTypes());
+        this.permanentKeywords = KeywordMatcher.of(classification.getPermanentKeywords());
+        this.maxCauseDepth = classification.getMaxCauseDepth();
+    }
 
-        // Check message content for permanent errors
-        String message = throwable.getMessage();
-        if (message != null) {
-            if (VALIDATION_ERROR_PATTERN.matcher(message).matches() ||
-                BUSINESS_LOGIC_ERROR_PATTERN.matcher(message).matches()) {
-                return ErrorType.PERMANENT;
+    public ErrorType classifyError(Throwable throwable) {
+        Throwable current = throwable;
+        for (int depth = 0; current != null && depth <= maxCauseDepth; depth++) {
+            switch (typeRules.get(current.getClass())) {
+                case OWN_ERROR_TYPE:
+                    return ((OrderProcessingException) current).getErrorType();
+                case TRANSIENT:
+                    return ErrorType.TRANSIENT;
+                case PERMANENT:
+                    return ErrorType.PERMANENT;
+                default:
+                    String message = current.getMessage();
+                    if (message != null && permanentKeywords.containsAny(message)) {
+                        return ErrorType.PERMANENT;
+                    }
             }
-        }
-
-        // Check exception type for permanent errors
-        if (throwable instanceof IllegalArgumentException ||
-            throwable instanceof IllegalStateException ||
-            throwable instanceof UnsupportedOperationException) {
-            return ErrorType.PERMANENT;
+            current = current.getCause() != current ? current.getCause() : null;
         }
 
         // Default to transient for unknown errors
@@ -62,11 +77,24 @@ public class ErrorClassifier {
 
     public boolean shouldRetry(Throwable throwable, int currentRetryCount, int maxRetries) {
         ErrorType errorType = classifyError(throwable);
-        
+
         if (errorType == ErrorType.PERMANENT) {
             return false;
         }
-        
+
         return currentRetryCount < maxRetries;
     }
+
+    private TypeRule ruleFor(Class<?> type) {
+        if (OrderProcessingException.class.isAssignableFrom(type)) {
+            return TypeRule.OWN_ERROR_TYPE;
+        }
+        if (transientTypes.stream().anyMatch(transientType -> transientType.isAssignableFrom(type))) {
+            return TypeRule.TRANSIENT;
+        }
+        if (permanentTypes.stream().anyMatch(permanentType -> permanentType.isAssignableFrom(type))) {
+            return TypeRule.PERMANENT;
+        }
+        return TypeRule.MESSAGE;
+    }
 }
@@ -0,0 +1,126 @@
+package com.example.dlq.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Case-insensitive multi-keyword matcher (Aho-Corasick).
+ * <p>
+ * The keywords are compiled into a deterministic automaton over the characters they contain,
+ * so {@link #containsAny(CharSequence)} scans the text once, one table lookup per character,
+ * no matter how many keywords there are and without backtracking. Characters are folded with
+ * {@link Character#toLowerCase(char)}; ASCII is folded and classified without a method call.
+ */
+final class KeywordMatcher {
+
+    private static final int ROOT = 0;
+
+    // Alphabet index per character; 0 for characters that occur in no keyword
+    private final int[] asciiClasses = new int[128];
+    private final Map<Character, Integer> otherClasses = new HashMap<>();
+
+    // transitions[state][alphabet index] -> state
+    private final int[][] transitions;
+    private final boolean[] accepting;
+
+    private KeywordMatcher(Collection<String> keywords) {
+        List<Map<Integer, Integer>> trie = new ArrayList<>();
+        List<Boolean> terminal = new ArrayList<>();
+        trie.add(new HashMap<>());
+        terminal.add(false);
+
+        int alphabetSize = 1;
+        for (String keyword : keywords) {
+            if (keyword.isEmpty()) {
+                throw new IllegalArgumentException("Keywords must not be empty");
+            }
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                char ch = fold(keyword.charAt(i));
+                int symbol = classOf(ch);
+                if (symbol == 0) {
+                    symbol = alphabetSize++;
+                    if (ch < 128) {
+                        asciiClasses[ch] = symbol;
+                    } else {
+                        otherClasses.put(ch, symbol);
+                    }
+                }
+                Integer next = trie.get(state).get(symbol);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new HashMap<>());
+                    terminal.add(false);
+                    trie.get(state).put(symbol, next);
+                }
+                state = next;
+            }
+            terminal.set(state, true);
+        }
+
+        // Breadth-first over the trie: missing transitions follow the failure link, and a state
+        // accepts if any keyword ends at it or at its failure state
+        transitions = new int[trie.size()][alphabetSize];
+        accepting = new boolean[trie.size()];
+        int[] failure = new int[trie.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 1; symbol < alphabetSize; symbol++) {
+            Integer child = trie.get(ROOT).get(symbol);
+            if (child != null) {
+                transitions[ROOT][symbol] = child;
+                failure[child] = ROOT;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            accepting[state] = terminal.get(state) || accepting[failure[state]];
+            for (int symbol = 1; symbol < alphabetSize; symbol++) {
+                Integer child = trie.get(state).get(symbol);
+                if (child != null) {
+                    transitions[state][symbol] = child;
+                    failure[child] = transitions[failure[state]][symbol];
+                    queue.add(child);
+                } else {
+                    transitions[state][symbol] = transitions[failure[state]][symbol];
+                }
+            }
+        }
+    }
+
+    static KeywordMatcher of(Collection<String> keywords) {
+        return new KeywordMatcher(keywords);
+    }
+
+    boolean containsAny(CharSequence text) {
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            int symbol = classOf(fold(text.charAt(i)));
+            state = symbol == 0 ? ROOT : transitions[state][symbol];
+            if (accepting[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int classOf(char ch) {
+        if (ch < 128) {
+            return asciiClasses[ch];
+        }
+        Integer symbol = otherClasses.get(ch);
+        return symbol != null ? symbol : 0;
+    }
+
+    private static char fold(char ch) {
+        if (ch < 128) {
+            return ch >= 'A' && ch <= 'Z' ? (char) (ch + ('a' - 'A')) : ch;
+        }
+        return Character.toLowerCase(ch);
+    }
+}
@@ -14,6 +14,7 @@ public class MetricsService {
 
     private final Counter orderProcessedCounter;
     private final Counter orderRetryCounter;
+    private final Counter retryThrottledCounter;
     private final Counter orderDlqCounter;
     private final Counter orderRequeuedCounter;
     private final Timer orderProcessingTimer;
@@ -26,6 +27,9 @@ public class MetricsService {
         this.orderRetryCounter = Counter.builder("orders.retry")
                 .description("Number of orders sent to retry")
                 .register(meterRegistry);
+        this.retryThrottledCounter = Counter.builder("orders.retry.throttled")
+                .description("Number of retries parked because the retry budget was exhausted")
+                .register(meterRegistry);
         this.orderDlqCounter = Counter.builder("orders.dlq")
                 .description("Number of orders sent to DLQ")
                 .register(meterRegistry);
@@ -50,6 +54,11 @@ public class MetricsService {
         logger.info("Recorded order retry metric for topic: {}", retryTopic);
     }
 
+    public void recordRetryThrottled(String parkingTopic) {
+        retryThrottledCounter.increment();
+        logger.warn("Recorded retry throttled metric, parked on: {}", parkingTopic);
+    }
+
     public void recordOrderDlq() {
         orderDlqCounter.increment();
         logger.warn("Recorded order DLQ metric");
@@ -0,0 +1,57 @@
+package com.example.dlq.service;
+
+import com.example.dlq.config.RetryProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token bucket capping retry traffic relative to successful traffic.
+ * <p>
+ * Every successfully processed record deposits {@code ratio} tokens and every retry withdraws
+ * one, so retries stay at or below {@code ratio} x successes. A small time-based trickle
+ * ({@code minPerSecond}) keeps retries possible when there is little fresh traffic.
+ */
+@Component
+public class RetryBudget {
+
+    private final RetryProperties.Budget config;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public RetryBudget(RetryProperties properties) {
+        this.config = properties.getBudget();
+        this.tokens = config.getMaxTokens();
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public synchronized void recordSuccess() {
+        refill();
+        tokens = Math.min(config.getMaxTokens(), tokens + config.getRatio());
+    }
+
+    /**
+     * Withdraws one retry token, returning false when the budget is exhausted.
+     */
+    public synchronized boolean tryAcquire() {
+        if (!config.isEnabled()) {
+            return true;
+        }
+        refill();
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized double getAvailableTokens() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+        lastRefillNanos = now;
+        tokens = Math.min(config.getMaxTokens(), tokens + elapsedSeconds * config.getMinPerSecond());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.dlq.service;
+
+import com.example.dlq.config.RetryProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry ladder derived from {@link RetryProperties}: one tier per configured delay, each with
+ * its own topic named {@code <main topic>.retry.<delay>}, plus jittered due-time calculation.
+ */
+@Component
+public class RetryPolicy {
+
+    public record Tier(int index, Duration delay, String topic) {
+    }
+
+    private final RetryProperties properties;
+    private final List<Tier> tiers;
+
+    public RetryPolicy(RetryProperties properties, @Value("${kafka.topics.main}") String mainTopic) {
+        if (properties.getDelays().isEmpty()) {
+            throw new IllegalStateException("retry.delays must contain at least one delay");
+        }
+        this.properties = properties;
+
+        List<Tier> ladder = new ArrayList<>();
+        for (Duration delay : properties.getDelays()) {
+            ladder.add(new Tier(ladder.size(), delay, mainTopic + ".retry." + label(delay)));
+        }
+        this.tiers = Collections.unmodifiableList(ladder);
+    }
+
+    public List<Tier> getTiers() {
+        return tiers;
+    }
+
+    public String[] topicNames() {
+        return tiers.stream().map(Tier::topic).distinct().toArray(String[]::new);
+    }
+
+    public int getMaxAttempts() {
+        return properties.getMaxAttempts();
+    }
+
+    public int getTopicPartitions() {
+        return properties.getTopicPartitions();
+    }
+
+    /**
+     * Tier for the next attempt of a record that has been retried {@code currentRetryCount}
+     * times, or null once max attempts are exhausted.
+     */
+    public Tier nextTier(int currentRetryCount) {
+        if (currentRetryCount >= properties.getMaxAttempts()) {
+            return null;
+        }
+        return tiers.get(Math.min(currentRetryCount, tiers.size() - 1));
+    }
+
+    /**
+     * Longest tier, used to park retries when the retry budget is exhausted.
+     */
+    public Tier parkingTier() {
+        return tiers.get(tiers.size() - 1);
+    }
+
+    public Tier tierForTopic(String topic) {
+        return tiers.stream()
+                .filter(tier -> tier.topic().equals(topic))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Jittered delay for the tier. {@code previousDelay} is the delay actually applied on the
+     * previous hop (null on the first retry) and feeds decorrelated jitter.
+     */
+    public Duration delayFor(Tier tier, Duration previousDelay) {
+        long baseMs = tier.delay().toMillis();
+        long capMs = Math.max(properties.getMaxDelay().toMillis(), baseMs);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long delayMs = switch (properties.getJitter()) {
+            case NONE -> baseMs;
+            case FULL -> random.nextLong(baseMs + 1);
+            case DECORRELATED -> {
+                long upperMs = previousDelay != null ? Math.max(previousDelay.toMillis() * 3, baseMs) : baseMs;
+                yield Math.min(capMs, baseMs + random.nextLong(upperMs - baseMs + 1));
+            }
+        };
+        return Duration.ofMillis(delayMs);
+    }
+
+    static String label(Duration delay) {
+        long ms = delay.toMillis();
+        if (ms > 0 && ms % 3_600_000 == 0) {
+            return (ms / 3_600_000) + "h";
+        }
+        if (ms > 0 && ms % 60_000 == 0) {
+            return (ms / 60_000) + "m";
+        }
+        if (ms > 0 && ms % 1_000 == 0) {
+            return (ms / 1_000) + "s";
+        }
+        return ms + "ms";
+    }
+}
@@ -1,17 +1,27 @@
 package com.example.dlq.service;
 
+import com.example.dlq.config.RetryProperties;
+import com.example.dlq.delay.DelayWheelService;
+import com.example.dlq.entity.DlqMessage;
+import com.example.dlq.model.HeaderCodec;
+import com.example.dlq.model.OrderEventCodec;
 import com.example.dlq.model.RetryHeaders;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.concurrent.CompletableFuture;
 
@@ -20,91 +30,139 @@ public class RetryService {
 
     private static final Logger logger = LoggerFactory.getLogger(RetryService.class);
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    // Headers describing a single hop, replaced whenever a record is forwarded
+    private static final String[] HOP_HEADERS = {
+        RetryHeaders.RETRY_COUNT, RetryHeaders.LAST_ERROR, RetryHeaders.STACKTRACE,
+        RetryHeaders.STACKTRACE_FINGERPRINT, RetryHeaders.NEXT_AT, RetryHeaders.RETRY_DELAY_MS
+    };
+
+    // Retry state of the previous attempts, dropped when a record is replayed from the DLQ. The
+    // origin goes too, so a replay that fails again is stored under its new main-topic position
+    private static final String[] REPLAY_RESET_HEADERS = {
+        RetryHeaders.RETRY_COUNT, RetryHeaders.NEXT_AT, RetryHeaders.RETRY_DELAY_MS,
+        RetryHeaders.RETRY_UNTIL, RetryHeaders.REQUeUED_BY, RetryHeaders.MAX_REQUEUES,
+        RetryHeaders.ORIGINAL_TOPIC, RetryHeaders.ORIGINAL_PARTITION, RetryHeaders.ORIGINAL_OFFSET
+    };
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
     private final ObjectMapper objectMapper;
     private final ErrorClassifier errorClassifier;
     private final MetricsService metricsService;
+    private final RetryPolicy retryPolicy;
+    private final RetryBudget retryBudget;
+    private final ObjectProvider<DelayWheelService> delayWheelService;
+    private final StackTraceFingerprinter stackTraceFingerprinter;
+    private final boolean binaryHeaders;
 
     @Value("${kafka.topics.main}")
     private String mainTopic;
 
-    @Value("${kafka.topics.retry-5s}")
-    private String retry5sTopic;
-
-    @Value("${kafka.topics.retry-30s}")
-    private String retry30sTopic;
-
-    @Value("${kafka.topics.retry-5m}")
-    private String retry5mTopic;
-
     @Value("${kafka.topics.dlq}")
     private String dlqTopic;
 
-    @Value("${retry.max-attempts}")
-    private int maxAttempts;
+    @Value("${retry.delay-wheel.min-delay:1m}")
+    private Duration delayWheelMinDelay;
+
+    // The delay wheel journals locally and cannot take part in a Kafka transaction
+    @Value("${kafka.consumer.exactly-once:false}")
+    private boolean exactlyOnce;
 
-    public RetryService(KafkaTemplate<String, String> kafkaTemplate, 
+    public RetryService(KafkaTemplate<String, byte[]> kafkaTemplate, 
                        ObjectMapper objectMapper,
                        ErrorClassifier errorClassifier,
-                       MetricsService metricsService) {
+                       MetricsService metricsService,
+                       RetryPolicy retryPolicy,
+                       RetryBudget retryBudget,
+                       ObjectProvider<DelayWheelService> delayWheelService,
+                       RetryProperties retryProperties,
+                       StackTraceFingerprinter stackTraceFingerprinter) {
         this.kafkaTemplate = kafkaTemplate;
         this.objectMapper = objectMapper;
         this.errorClassifier = errorClassifier;
         this.metricsService = metricsService;
+        this.retryPolicy = retryPolicy;
+        this.retryBudget = retryBudget;
+        this.delayWheelService = delayWheelService;
+        this.stackTraceFingerprinter = stackTraceFingerprinter;
+        this.binaryHeaders = retryProperties.getHeaderFormat() == RetryProperties.HeaderFormat.BINARY;
     }
 
-    @Transactional
-    public CompletableFuture<SendResult<String, String>> sendToRetry(
-            String key, String value, int currentRetryCount, 
-            String originalTopic, int originalPartition, long originalOffset,
-            Throwable error) {
+    /**
+     * Forwards the consumed record to its next retry tier, or to the DLQ once the tiers are
+     * exhausted. The value and the record's own headers are sent as received; only the retry
+     * headers are replaced.
+     */
+    @Transactional(transactionManager = "kafkaTransactionManager", propagation = Propagation.SUPPORTS)
+    public CompletableFuture<SendResult<String, byte[]>> sendToRetry(
+            ConsumerRecord<String, byte[]> source, int currentRetryCount,
+            Throwable error, Duration previousDelay) {
         
-        String nextTopic = getNextRetryTopic(currentRetryCount);
-        if (nextTopic == null) {
-            return sendToDlq(key, value, currentRetryCount, originalTopic, originalPartition, originalOffset, error);
+        RetryPolicy.Tier tier = retryPolicy.nextTier(currentRetryCount);
+        if (tier == null) {
+            return sendToDlq(source, currentRetryCount, error);
         }
 
-        RecordHeaders headers = createRetryHeaders(
-            currentRetryCount, originalTopic, originalPartition, originalOffset, error
-        );
+        // Without budget the retry skips the short tiers and is parked on the longest one
+        if (!retryBudget.tryAcquire()) {
+            tier = retryPolicy.parkingTier();
+            metricsService.recordRetryThrottled(tier.topic());
+        }
+
+        Duration delay = retryPolicy.delayFor(tier, previousDelay);
+        Instant nextAt = Instant.now().plus(delay);
+        RecordHeaders headers = createRetryHeaders(source, currentRetryCount, error, nextAt, delay);
+
+        // Long delays are parked in the in-process delay wheel and published back to the main topic
+        DelayWheelService wheel = delayWheelService.getIfAvailable();
+        if (wheel != null && !exactlyOnce && !Duration.between(Instant.now(), nextAt).minus(delayWheelMinDelay).isNegative()) {
+            ProducerRecord<String, byte[]> record = new ProducerRecord<>(mainTopic, null, source.key(), source.value(), headers);
+            logger.info("Parking message in delay wheel until {} (attempt {})", nextAt, currentRetryCount + 1);
+            metricsService.recordOrderRetry("delay-wheel");
+            return wheel.schedule(record, nextAt);
+        }
 
-        ProducerRecord<String, String> record = new ProducerRecord<>(nextTopic, null, key, value, headers);
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(tier.topic(), null, source.key(), source.value(), headers);
         
-        logger.info("Sending message to retry topic: {} (attempt {})", nextTopic, currentRetryCount + 1);
-        metricsService.recordOrderRetry(nextTopic);
+        logger.info("Sending message to retry topic: {} (attempt {}, delay {})", tier.topic(), currentRetryCount + 1, delay);
+        metricsService.recordOrderRetry(tier.topic());
         
         return kafkaTemplate.send(record);
     }
 
-    @Transactional
-    public CompletableFuture<SendResult<String, String>> sendToDlq(
-            String key, String value, int currentRetryCount,
-            String originalTopic, int originalPartition, long originalOffset,
-            Throwable error) {
+    /**
+     * Records a successfully processed record, earning retry budget.
+     */
+    public void recordSuccess() {
+        retryBudget.recordSuccess();
+    }
+
+    @Transactional(transactionManager = "kafkaTransactionManager", propagation = Propagation.SUPPORTS)
+    public CompletableFuture<SendResult<String, byte[]>> sendToDlq(
+            ConsumerRecord<String, byte[]> source, int currentRetryCount, Throwable error) {
         
-        RecordHeaders headers = createDlqHeaders(
-            currentRetryCount, originalTopic, originalPartition, originalOffset, error
-        );
+        RecordHeaders headers = createDlqHeaders(source, currentRetryCount, error);
 
-        ProducerRecord<String, String> record = new ProducerRecord<>(dlqTopic, null, key, value, headers);
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(dlqTopic, null, source.key(), source.value(), headers);
         
-        logger.warn("Sending message to DLQ: {} (final attempt {})", key, currentRetryCount + 1);
+        logger.warn("Sending message to DLQ: {} (final attempt {})", source.key(), currentRetryCount + 1);
         metricsService.recordOrderDlq();
         
         return kafkaTemplate.send(record);
     }
 
-    @Transactional
-    public CompletableFuture<SendResult<String, String>> requeueFromDlq(
+    @Transactional(transactionManager = "kafkaTransactionManager", propagation = Propagation.SUPPORTS)
+    public CompletableFuture<SendResult<String, byte[]>> requeueFromDlq(
             String key, String value, String requeuedBy) {
         
         RecordHeaders headers = new RecordHeaders();
-        headers.add(RetryHeaders.RETRY_COUNT, "0".getBytes());
-        headers.add(RetryHeaders.FIRST_SEEN_TS, Instant.now().toString().getBytes());
-        headers.add(RetryHeaders.REQUeUED_BY, requeuedBy.getBytes());
-        headers.add(RetryHeaders.MAX_REQUEUES, "3".getBytes());
-
-        ProducerRecord<String, String> record = new ProducerRecord<>(mainTopic, null, key, value, headers);
+        headers.add(RetryHeaders.RETRY_COUNT, encode(0));
+        headers.add(RetryHeaders.FIRST_SEEN_TS, encode(Instant.now()));
+        headers.add(RetryHeaders.REQUeUED_BY, HeaderCodec.encodeString(requeuedBy));
+        headers.add(RetryHeaders.MAX_REQUEUES, encode(DlqMessage.MAX_REQUEUES));
+        headers.add(OrderEventCodec.CONTENT_TYPE, HeaderCodec.encodeString(OrderEventCodec.JSON));
+
+        byte[] payload = value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(mainTopic, null, key, payload, headers);
         
         logger.info("Requeuing message from DLQ: {} by {}", key, requeuedBy);
         metricsService.recordOrderRequeued();
@@ -112,72 +170,77 @@ public class RetryService {
         return kafkaTemplate.send(record);
     }
 
-    private String getNextRetryTopic(int currentRetryCount) {
-        if (currentRetryCount >= maxAttempts) {
-            return null; // Go to DLQ
+    /**
+     * Republishes a record read from the DLQ topic to the main topic with its original value
+     * and headers. The retry state and origin are reset as for {@link #requeueFromDlq}; the
+     * error headers of the last hop are kept until the next failure replaces them.
+     */
+    @Transactional(transactionManager = "kafkaTransactionManager", propagation = Propagation.SUPPORTS)
+    public CompletableFuture<SendResult<String, byte[]>> replayFromDlq(
+            ConsumerRecord<String, byte[]> source, String requeuedBy) {
+
+        RecordHeaders headers = new RecordHeaders(source.headers().toArray());
+        for (String key : REPLAY_RESET_HEADERS) {
+            headers.remove(key);
         }
+        headers.add(RetryHeaders.RETRY_COUNT, encode(0));
+        headers.add(RetryHeaders.REQUeUED_BY, HeaderCodec.encodeString(requeuedBy));
+        headers.add(RetryHeaders.MAX_REQUEUES, encode(DlqMessage.MAX_REQUEUES));
 
-        switch (currentRetryCount) {
-            case 0: return retry5sTopic;
-            case 1: return retry30sTopic;
-            case 2: return retry5mTopic;
-            default: return null;
-        }
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(mainTopic, null, source.key(), source.value(), headers);
+
+        logger.debug("Replaying message from DLQ: {} ({}-{}@{}) by {}",
+                    source.key(), source.topic(), source.partition(), source.offset(), requeuedBy);
+        metricsService.recordOrderRequeued();
+
+        return kafkaTemplate.send(record);
     }
 
-    private RecordHeaders createRetryHeaders(int retryCount, String originalTopic, 
-                                           int originalPartition, long originalOffset, Throwable error) {
-        RecordHeaders headers = new RecordHeaders();
+    private RecordHeaders createRetryHeaders(ConsumerRecord<String, byte[]> source, int retryCount,
+                                           Throwable error, Instant nextAt, Duration delay) {
+        RecordHeaders headers = createDlqHeaders(source, retryCount, error);
         
-        headers.add(RetryHeaders.RETRY_COUNT, String.valueOf(retryCount + 1).getBytes());
-        headers.add(RetryHeaders.FIRST_SEEN_TS, Instant.now().toString().getBytes());
-        headers.add(RetryHeaders.LAST_ERROR, truncateString(error.getMessage(), 500).getBytes());
-        headers.add(RetryHeaders.STACKTRACE, truncateString(getStackTrace(error), 1000).getBytes());
-        headers.add(RetryHeaders.ORIGINAL_TOPIC, originalTopic.getBytes());
-        headers.add(RetryHeaders.ORIGINAL_PARTITION, String.valueOf(originalPartition).getBytes());
-        headers.add(RetryHeaders.ORIGINAL_OFFSET, String.valueOf(originalOffset).getBytes());
-        
-        // Set next retry time based on the retry topic
-        String nextTopic = getNextRetryTopic(retryCount + 1);
-        if (nextTopic != null) {
-            Instant nextAt = calculateNextRetryTime(retryCount + 1);
-            headers.add(RetryHeaders.NEXT_AT, nextAt.toString().getBytes());
-        }
+        // Due time and applied delay of the tier the record is sent to
+        headers.add(RetryHeaders.NEXT_AT, encode(nextAt));
+        headers.add(RetryHeaders.RETRY_DELAY_MS, encode(delay.toMillis()));
         
         return headers;
     }
 
-    private RecordHeaders createDlqHeaders(int retryCount, String originalTopic, 
-                                         int originalPartition, long originalOffset, Throwable error) {
-        RecordHeaders headers = new RecordHeaders();
+    private RecordHeaders createDlqHeaders(ConsumerRecord<String, byte[]> source, int retryCount, Throwable error) {
+        // Copied so the consumed record is left intact; the previous hop's retry headers are replaced
+        RecordHeaders headers = new RecordHeaders(source.headers().toArray());
+        for (String key : HOP_HEADERS) {
+            headers.remove(key);
+        }
         
-        headers.add(RetryHeaders.RETRY_COUNT, String.valueOf(retryCount + 1).getBytes());
-        headers.add(RetryHeaders.FIRST_SEEN_TS, Instant.now().toString().getBytes());
-        headers.add(RetryHeaders.LAST_ERROR, truncateString(error.getMessage(), 500).getBytes());
-        headers.add(RetryHeaders.STACKTRACE, truncateString(getStackTrace(error), 1000).getBytes());
-        headers.add(RetryHeaders.ORIGINAL_TOPIC, originalTopic.getBytes());
-        headers.add(RetryHeaders.ORIGINAL_PARTITION, String.valueOf(originalPartition).getBytes());
-        headers.add(RetryHeaders.ORIGINAL_OFFSET, String.valueOf(originalOffset).getBytes());
+        headers.add(RetryHeaders.RETRY_COUNT, encode(retryCount + 1));
+        headers.add(RetryHeaders.LAST_ERROR, HeaderCodec.encodeString(truncateString(error.getMessage(), 500)));
+        headers.add(RetryHeaders.STACKTRACE_FINGERPRINT, HeaderCodec.encodeString(stackTraceFingerprinter.fingerprint(error)));
+
+        // Where and when the record was first seen is set on the first hop only
+        if (headers.lastHeader(RetryHeaders.FIRST_SEEN_TS) == null) {
+            headers.add(RetryHeaders.FIRST_SEEN_TS, encode(Instant.now()));
+        }
+        if (headers.lastHeader(RetryHeaders.ORIGINAL_TOPIC) == null) {
+            headers.add(RetryHeaders.ORIGINAL_TOPIC, HeaderCodec.encodeString(source.topic()));
+            headers.add(RetryHeaders.ORIGINAL_PARTITION, encode(source.partition()));
+            headers.add(RetryHeaders.ORIGINAL_OFFSET, encode(source.offset()));
+        }
         
         return headers;
     }
 
-    private Instant calculateNextRetryTime(int retryCount) {
-        switch (retryCount) {
-            case 1: return Instant.now().plusSeconds(5);
-            case 2: return Instant.now().plusSeconds(30);
-            case 3: return Instant.now().plusSeconds(300); // 5 minutes = 300 seconds
-            default: return Instant.now();
-        }
+    private byte[] encode(int value) {
+        return binaryHeaders ? HeaderCodec.encodeInt(value) : HeaderCodec.encodeString(Integer.toString(value));
     }
 
-    private String getStackTrace(Throwable throwable) {
-        if (throwable == null) return "";
-        
-        java.io.StringWriter sw = new java.io.StringWriter();
-        java.io.PrintWriter pw = new java.io.PrintWriter(sw);
-        throwable.printStackTrace(pw);
-        return sw.toString();
+    private byte[] encode(long value) {
+        return binaryHeaders ? HeaderCodec.encodeLong(value) : HeaderCodec.encodeString(Long.toString(value));
+    }
+
+    private byte[] encode(Instant value) {
+        return binaryHeaders ? HeaderCodec.encodeInstant(value) : HeaderCodec.encodeString(value.toString());
     }
 
     private String truncateString(String str, int maxLength) {
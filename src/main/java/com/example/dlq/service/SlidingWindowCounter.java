@@ -0,0 +1,72 @@
+package com.example.dlq.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free event counter over a sliding window of fixed time units (seconds, minutes).
+ * <p>
+ * A ring of {@code size} buckets holds one time unit each. A bucket packs the index of its
+ * unit (since the epoch) into the high 32 bits and the count into the low 32 bits, so it is
+ * claimed for a new unit and incremented with a single compare-and-set; a bucket still
+ * stamped with an older unit counts as empty.
+ */
+class SlidingWindowCounter {
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private final long unitMillis;
+    private final AtomicLongArray buckets;
+
+    SlidingWindowCounter(Duration unit, int size) {
+        this.unitMillis = unit.toMillis();
+        this.buckets = new AtomicLongArray(size);
+    }
+
+    void add(long epochMillis, int count) {
+        long unit = epochMillis / unitMillis;
+        int slot = slot(unit);
+        while (true) {
+            long bucket = buckets.get(slot);
+            long bucketUnit = bucket >>> 32;
+            if (bucketUnit > unit) {
+                // The bucket already moved on to a later unit; the event is out of the window
+                return;
+            }
+            long updated = bucketUnit == unit ? bucket + count : unit << 32 | count;
+            if (buckets.compareAndSet(slot, bucket, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Events in the unit containing {@code nowMillis} and the {@code units - 1} before it.
+     */
+    long sum(long nowMillis, int units) {
+        if (units > buckets.length()) {
+            throw new IllegalArgumentException("Window of " + units + " units exceeds " + buckets.length());
+        }
+        long now = nowMillis / unitMillis;
+        long total = 0;
+        for (long unit = now; unit > now - units; unit--) {
+            long bucket = buckets.get(slot(unit));
+            if (bucket >>> 32 == unit) {
+                total += bucket & COUNT_MASK;
+            }
+        }
+        return total;
+    }
+
+    long getUnitMillis() {
+        return unitMillis;
+    }
+
+    int getSize() {
+        return buckets.length();
+    }
+
+    private int slot(long unit) {
+        return (int) (unit % buckets.length());
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.dlq.service;
+
+import com.example.dlq.entity.StackTrace;
+import com.example.dlq.repository.StackTraceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fingerprints stack traces so that each distinct trace is rendered and stored once.
+ * <p>
+ * The fingerprint is a 64-bit FNV-1a hash over the normalized trace: exception class names
+ * of the cause chain and the {@code class.method} of each frame. Messages and line numbers
+ * are left out, generated class suffixes ({@code $$Lambda}, {@code $$SpringCGLIB}) are cut
+ * and reflection frames are skipped, so the same failure site always yields the same
+ * fingerprint. Only a fingerprint not seen before is rendered and written to
+ * {@code stack_traces}; known fingerprints are served from an in-memory LRU cache.
+ * <p>
+ * New traces are written by a background thread with an insert-or-ignore, so the calling
+ * listener never waits on the database or joins its transaction. A trace whose write fails
+ * or does not fit the queue is dropped from the cache and written on its next occurrence.
+ */
+@Service
+public class StackTraceFingerprinter implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(StackTraceFingerprinter.class);
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final int MAX_CAUSES = 8;
+    private static final int MAX_FRAMES = 64;
+    private static final int MAX_CACHED = 4096;
+    private static final int MAX_PENDING_WRITES = 1024;
+
+    private final StackTraceRepository stackTraceRepository;
+    private final Executor writer;
+
+    // Hashes whose trace is stored or queued for writing, least recently used first
+    private final Map<Long, String> stored = Collections.synchronizedMap(
+        new LinkedHashMap<>(MAX_CACHED * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > MAX_CACHED;
+            }
+        });
+
+    @Autowired
+    public StackTraceFingerprinter(StackTraceRepository stackTraceRepository) {
+        this(stackTraceRepository, new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(MAX_PENDING_WRITES), task -> {
+                Thread thread = new Thread(task, "stack-trace-writer");
+                thread.setDaemon(true);
+                return thread;
+            }));
+    }
+
+    StackTraceFingerprinter(StackTraceRepository stackTraceRepository, Executor writer) {
+        this.stackTraceRepository = stackTraceRepository;
+        this.writer = writer;
+    }
+
+    /**
+     * Returns the fingerprint of the error's stack trace, storing the trace on first sight.
+     */
+    public String fingerprint(Throwable error) {
+        long hash = hash(error);
+        String fingerprint = stored.get(hash);
+        if (fingerprint == null) {
+            fingerprint = toFingerprint(hash);
+            store(hash, new StackTrace(fingerprint, error.getClass().getName(), render(error)));
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Fingerprints an already rendered trace, e.g. from a legacy {@code x-stacktrace} header.
+     */
+    public String fingerprint(String trace) {
+        long hash = hash(FNV_OFFSET_BASIS, trace);
+        String fingerprint = stored.get(hash);
+        if (fingerprint == null) {
+            fingerprint = toFingerprint(hash);
+            String firstLine = trace.lines().findFirst().orElse("unknown");
+            int messageStart = firstLine.indexOf(':');
+            String exceptionClass = (messageStart > 0 ? firstLine.substring(0, messageStart) : firstLine).trim();
+            store(hash, new StackTrace(fingerprint, exceptionClass, trace));
+        }
+        return fingerprint;
+    }
+
+    static long hash(Throwable error) {
+        long hash = FNV_OFFSET_BASIS;
+        Throwable current = error;
+        for (int depth = 0; current != null && depth < MAX_CAUSES; depth++) {
+            hash = hash(hash, current.getClass().getName());
+            StackTraceElement[] frames = current.getStackTrace();
+            for (int i = 0; i < frames.length && i < MAX_FRAMES; i++) {
+                String className = frames[i].getClassName();
+                if (isReflectionFrame(className)) {
+                    continue;
+                }
+                hash = hash(hash, className, generatedSuffixStart(className));
+                hash = hash(hash, frames[i].getMethodName());
+            }
+            current = current.getCause() != current ? current.getCause() : null;
+        }
+        return hash;
+    }
+
+    static String render(Throwable error) {
+        StringBuilder trace = new StringBuilder(1024);
+        Throwable current = error;
+        for (int depth = 0; current != null && depth < MAX_CAUSES; depth++) {
+            if (depth > 0) {
+                trace.append("Caused by: ");
+            }
+            trace.append(current.getClass().getName()).append('\n');
+            StackTraceElement[] frames = current.getStackTrace();
+            for (int i = 0; i < frames.length && i < MAX_FRAMES; i++) {
+                trace.append("\tat ").append(frames[i]).append('\n');
+            }
+            if (frames.length > MAX_FRAMES) {
+                trace.append("\t... ").append(frames.length - MAX_FRAMES).append(" more\n");
+            }
+            current = current.getCause() != current ? current.getCause() : null;
+        }
+        return trace.toString();
+    }
+
+    private void store(long hash, StackTrace stackTrace) {
+        stored.put(hash, stackTrace.getFingerprint());
+        try {
+            writer.execute(() -> write(hash, stackTrace));
+        } catch (RejectedExecutionException e) {
+            stored.remove(hash);
+            logger.debug("Stack trace write queue full, deferring {}", stackTrace.getFingerprint());
+        }
+    }
+
+    private void write(long hash, StackTrace stackTrace) {
+        try {
+            int inserted = stackTraceRepository.insertIgnoringDuplicate(stackTrace.getFingerprint(),
+                stackTrace.getExceptionClass(), stackTrace.getTrace(), stackTrace.getFirstSeenAt());
+            if (inserted > 0) {
+                logger.info("Stored new stack trace: fingerprint={}, exception={}",
+                           stackTrace.getFingerprint(), stackTrace.getExceptionClass());
+            }
+        } catch (Exception e) {
+            // Uncached, so the next occurrence tries again
+            stored.remove(hash);
+            logger.warn("Failed to store stack trace {}: {}", stackTrace.getFingerprint(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (writer instanceof ExecutorService executor) {
+            executor.shutdown();
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private static boolean isReflectionFrame(String className) {
+        return className.startsWith("jdk.internal.reflect.")
+            || className.startsWith("java.lang.reflect.")
+            || className.startsWith("sun.reflect.");
+    }
+
+    private static int generatedSuffixStart(String className) {
+        int suffix = className.indexOf("$$");
+        return suffix >= 0 ? suffix : className.length();
+    }
+
+    private static long hash(long hash, String value) {
+        return hash(hash, value, value.length());
+    }
+
+    private static long hash(long hash, String value, int length) {
+        for (int i = 0; i < length; i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // Separator, so that "ab"+"c" and "a"+"bc" differ
+        hash ^= 0xFF;
+        hash *= FNV_PRIME;
+        return hash;
+    }
+
+    private static String toFingerprint(long hash) {
+        String hex = Long.toHexString(hash);
+        return "0".repeat(16 - hex.length()) + hex;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.dlq.benchmark;
+
+import com.example.dlq.config.RetryProperties;
+import com.example.dlq.exception.ErrorType;
+import com.example.dlq.service.ErrorClassifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * {@link ErrorClassifier} versus the former classification by two {@code (?i).*(a|b|...).*}
+ * regexes, for representative messages: a short transient one, a keyword near the end of a
+ * long message, a long message without keywords and a wrapped I/O error.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorClassifierBenchmark {
+
+    private static final Pattern VALIDATION_ERROR_PATTERN = Pattern.compile(
+        "(?i).*(validation|invalid|malformed|schema|format).*"
+    );
+
+    private static final Pattern BUSINESS_LOGIC_ERROR_PATTERN = Pattern.compile(
+        "(?i).*(insufficient|not found|duplicate|conflict|forbidden).*"
+    );
+
+    @Param({"short", "keyword-late", "no-keyword", "wrapped-io"})
+    private String scenario;
+
+    private ErrorClassifier classifier;
+    private Throwable error;
+
+    @Setup
+    public void setUp() {
+        classifier = new ErrorClassifier(new RetryProperties());
+        String padding = "Request to inventory-service failed after 3 attempts with status 503 and body ".repeat(8);
+        error = switch (scenario) {
+            case "short" -> new RuntimeException("Connection reset");
+            case "keyword-late" -> new RuntimeException(padding + "- product SKU-1234 not found");
+            case "no-keyword" -> new RuntimeException(padding + "- upstream unavailable");
+            default -> new RuntimeException("Processing failed", new IOException(padding));
+        };
+    }
+
+    @Benchmark
+    public ErrorType automaton() {
+        return classifier.classifyError(error);
+    }
+
+    @Benchmark
+    public ErrorType regex() {
+        // The former classifier only looked at the outer exception
+        if (error instanceof IOException) {
+            return ErrorType.TRANSIENT;
+        }
+        String message = error.getMessage();
+        if (VALIDATION_ERROR_PATTERN.matcher(message).matches()
+            || BUSINESS_LOGIC_ERROR_PATTERN.matcher(message).matches()) {
+            return ErrorType.PERMANENT;
+        }
+        return ErrorType.TRANSIENT;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(ErrorClassifierBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
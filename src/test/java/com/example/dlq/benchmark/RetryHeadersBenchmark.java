@@ -0,0 +1,104 @@
+package com.example.dlq.benchmark;
+
+import com.example.dlq.model.HeaderCodec;
+import com.example.dlq.model.RetryHeaders;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding the numeric retry headers of one hop: binary {@link HeaderCodec}
+ * versus the former decimal/ISO-8601 string path ({@code getBytes()}, {@code new String},
+ * {@code Optional}, {@code parseInt}, {@code Instant.parse}).
+ * <p>
+ * Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RetryHeadersBenchmark {
+
+    private final Instant nextAt = Instant.parse("2024-05-01T10:15:30.123Z");
+    private Headers textHeaders;
+    private Headers binaryHeaders;
+
+    @Setup
+    public void setUp() {
+        textHeaders = encodeText();
+        binaryHeaders = encodeBinary();
+    }
+
+    @Benchmark
+    public Headers encodeText() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(RetryHeaders.RETRY_COUNT, String.valueOf(2).getBytes());
+        headers.add(RetryHeaders.FIRST_SEEN_TS, nextAt.toString().getBytes());
+        headers.add(RetryHeaders.ORIGINAL_PARTITION, String.valueOf(1).getBytes());
+        headers.add(RetryHeaders.ORIGINAL_OFFSET, String.valueOf(123_456_789L).getBytes());
+        headers.add(RetryHeaders.NEXT_AT, nextAt.toString().getBytes());
+        headers.add(RetryHeaders.RETRY_DELAY_MS, String.valueOf(30_000L).getBytes());
+        return headers;
+    }
+
+    @Benchmark
+    public Headers encodeBinary() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(RetryHeaders.RETRY_COUNT, HeaderCodec.encodeInt(2));
+        headers.add(RetryHeaders.FIRST_SEEN_TS, HeaderCodec.encodeInstant(nextAt));
+        headers.add(RetryHeaders.ORIGINAL_PARTITION, HeaderCodec.encodeInt(1));
+        headers.add(RetryHeaders.ORIGINAL_OFFSET, HeaderCodec.encodeLong(123_456_789L));
+        headers.add(RetryHeaders.NEXT_AT, HeaderCodec.encodeInstant(nextAt));
+        headers.add(RetryHeaders.RETRY_DELAY_MS, HeaderCodec.encodeLong(30_000L));
+        return headers;
+    }
+
+    @Benchmark
+    public void decodeTextLegacy(Blackhole blackhole) {
+        blackhole.consume(legacyString(textHeaders, RetryHeaders.RETRY_COUNT).map(Integer::parseInt).orElse(0));
+        blackhole.consume(legacyString(textHeaders, RetryHeaders.ORIGINAL_PARTITION).map(Integer::parseInt).orElse(-1));
+        blackhole.consume(legacyString(textHeaders, RetryHeaders.ORIGINAL_OFFSET).map(Long::parseLong).orElse(-1L));
+        blackhole.consume(legacyString(textHeaders, RetryHeaders.NEXT_AT).map(Instant::parse).orElse(null));
+        blackhole.consume(legacyString(textHeaders, RetryHeaders.RETRY_DELAY_MS).map(Long::parseLong).orElse(-1L));
+    }
+
+    @Benchmark
+    public void decodeBinary(Blackhole blackhole) {
+        blackhole.consume(RetryHeaders.getRetryCount(binaryHeaders));
+        blackhole.consume(RetryHeaders.getOriginalPartition(binaryHeaders));
+        blackhole.consume(RetryHeaders.getOriginalOffset(binaryHeaders));
+        blackhole.consume(RetryHeaders.getNextAtMillis(binaryHeaders));
+        blackhole.consume(HeaderCodec.decodeLong(binaryHeaders.lastHeader(RetryHeaders.RETRY_DELAY_MS).value(), -1L));
+    }
+
+    private static Optional<String> legacyString(Headers headers, String key) {
+        var header = headers.lastHeader(key);
+        byte[] value = header != null ? header.value() : null;
+        return value != null ? Optional.of(new String(value)) : Optional.empty();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(RetryHeadersBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
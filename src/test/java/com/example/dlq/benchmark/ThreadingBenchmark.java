@@ -0,0 +1,92 @@
+package com.example.dlq.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to push a burst of blocking orders (a 100ms sleep, like
+ * {@code OrderProcessingService}) through a fixed platform thread pool versus one virtual
+ * thread per order. The {@code virtual} case needs Java 21+.
+ * <p>
+ * Run with {@code mvn test-compile} and then the {@link #main} method on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ThreadingBenchmark {
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"1000", "10000"})
+    private int orders;
+
+    @Param({"200"})
+    private int platformPoolSize;
+
+    @Param({"100"})
+    private long processingMs;
+
+    private Executor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = "virtual".equals(threads)
+            ? new VirtualThreadTaskExecutor("bench-order-")
+            : Executors.newFixedThreadPool(platformPoolSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public void processBurst() {
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[orders];
+        for (int i = 0; i < orders; i++) {
+            tasks[i] = CompletableFuture.runAsync(this::processOrder, executor);
+        }
+        CompletableFuture.allOf(tasks).join();
+    }
+
+    private void processOrder() {
+        try {
+            Thread.sleep(processingMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(ThreadingBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
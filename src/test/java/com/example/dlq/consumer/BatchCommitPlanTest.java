@@ -0,0 +1,36 @@
+package com.example.dlq.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+class BatchCommitPlanTest {
+
+    @Test
+    void testCommitsContiguousPrefixAndRewindsFirstIncompleteRecord() {
+        ConsumerRecord<String, String> p0a = new ConsumerRecord<>("orders", 0, 10, "a", "a");
+        ConsumerRecord<String, String> p1a = new ConsumerRecord<>("orders", 1, 20, "b", "b");
+        ConsumerRecord<String, String> p0b = new ConsumerRecord<>("orders", 0, 11, "c", "c");
+        ConsumerRecord<String, String> p1b = new ConsumerRecord<>("orders", 1, 21, "d", "d");
+        ConsumerRecord<String, String> p0c = new ConsumerRecord<>("orders", 0, 12, "e", "e");
+        ConsumerRecord<String, String> p2a = new ConsumerRecord<>("orders", 2, 30, "f", "f");
+
+        // p0: 10 done, 11 failed, 12 done; p1: all done; p2: nothing done
+        Set<ConsumerRecord<?, ?>> completed = Set.of(p0a, p1a, p1b, p0c);
+        BatchCommitPlan plan = new BatchCommitPlan(List.of(p0a, p1a, p0b, p1b, p0c, p2a), completed::contains);
+
+        assertThat(plan.getCommits()).containsOnly(
+            entry(new TopicPartition("orders", 0), new OffsetAndMetadata(11)),
+            entry(new TopicPartition("orders", 1), new OffsetAndMetadata(22)));
+        assertThat(plan.getRewinds()).containsOnly(
+            entry(new TopicPartition("orders", 0), 11L),
+            entry(new TopicPartition("orders", 2), 30L));
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.dlq.consumer;
+
+import com.example.dlq.config.RetryProperties;
+import com.example.dlq.entity.DlqMessage;
+import com.example.dlq.repository.DlqMessageRepository;
+import com.example.dlq.repository.DlqRollupRepository;
+import com.example.dlq.service.DlqRateTracker;
+import com.example.dlq.service.ErrorClassifier;
+import com.example.dlq.service.MetricsService;
+import com.example.dlq.service.RetryBudget;
+import com.example.dlq.service.RetryPolicy;
+import com.example.dlq.service.RetryService;
+import com.example.dlq.service.StackTraceFingerprinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// The write-behind buffer commits on its own thread, so rows are committed and cleaned up here
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DlqConsumerTest {
+
+    private static final byte[] PAYLOAD = "{\"orderId\":\"order-1\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private DlqMessageRepository repository;
+
+    @Autowired
+    private DlqRollupRepository rollupRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+    private final List<ProducerRecord<String, byte[]>> sent = new ArrayList<>();
+    private DlqWriteBehindBuffer buffer;
+
+    @AfterEach
+    void cleanUp() {
+        if (buffer != null) {
+            buffer.stop();
+        }
+        repository.deleteAllInBatch();
+        rollupRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testReplayedRecordThatFailsAgainIsStoredAsNewEntry() throws InterruptedException {
+        RetryService retryService = retryService();
+        DlqConsumer dlqConsumer = dlqConsumer();
+
+        retryService.sendToDlq(new ConsumerRecord<>("orders.v1", 0, 10L, "order-1", PAYLOAD), 0,
+            new IllegalArgumentException("invalid order"));
+        ConsumerRecord<String, byte[]> firstDlqRecord = received(sent.get(0), "orders.v1.dlq", 0L);
+        dlqConsumer.handleDlqBatch(List.of(firstDlqRecord), mock(Consumer.class));
+        awaitStored(1);
+
+        retryService.replayFromDlq(firstDlqRecord, "ops");
+        ProducerRecord<String, byte[]> replayed = sent.get(1);
+        assertThat(replayed.topic()).isEqualTo("orders.v1");
+
+        retryService.sendToDlq(received(replayed, "orders.v1", 25L), 0,
+            new IllegalStateException("insufficient stock"));
+        dlqConsumer.handleDlqBatch(List.of(received(sent.get(2), "orders.v1.dlq", 1L)), mock(Consumer.class));
+        awaitStored(2);
+
+        assertThat(repository.findAll())
+            .extracting(DlqMessage::getOriginalTopic, DlqMessage::getOriginalOffset, DlqMessage::getLastError)
+            .containsExactlyInAnyOrder(tuple("orders.v1", 10L, "invalid order"),
+                tuple("orders.v1", 25L, "insufficient stock"));
+    }
+
+    private void awaitStored(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (repository.count() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(repository.count()).isEqualTo(count);
+    }
+
+    private static ConsumerRecord<String, byte[]> received(ProducerRecord<String, byte[]> record, String topic,
+                                                          long offset) {
+        ConsumerRecord<String, byte[]> received = new ConsumerRecord<>(topic, 0, offset, record.key(), record.value());
+        for (Header header : record.headers()) {
+            received.headers().add(header);
+        }
+        return received;
+    }
+
+    private DlqConsumer dlqConsumer() {
+        buffer = new DlqWriteBehindBuffer(repository, mock(DlqRateTracker.class), transactionManager,
+            new SimpleMeterRegistry(), 100, 10, Duration.ofMillis(10), Duration.ofMillis(10));
+        buffer.start();
+        return new DlqConsumer(mock(StackTraceFingerprinter.class), new OrderEventReader(new ObjectMapper()),
+            buffer, mock(ListenerContainerPauser.class), 100, Duration.ofSeconds(1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private RetryService retryService() {
+        RetryProperties properties = new RetryProperties();
+        StackTraceFingerprinter fingerprinter = mock(StackTraceFingerprinter.class);
+        when(fingerprinter.fingerprint(any(Throwable.class))).thenReturn("0123456789abcdef");
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            return new CompletableFuture<>();
+        });
+
+        RetryService retryService = new RetryService(kafkaTemplate, new ObjectMapper(),
+            new ErrorClassifier(properties), new MetricsService(new SimpleMeterRegistry()),
+            new RetryPolicy(properties, "orders.v1"), new RetryBudget(properties),
+            mock(ObjectProvider.class), properties, fingerprinter);
+        ReflectionTestUtils.setField(retryService, "mainTopic", "orders.v1");
+        ReflectionTestUtils.setField(retryService, "dlqTopic", "orders.v1.dlq");
+        return retryService;
+    }
+}
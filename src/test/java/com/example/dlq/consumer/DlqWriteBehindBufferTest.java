@@ -0,0 +1,110 @@
+package com.example.dlq.consumer;
+
+import com.example.dlq.entity.DlqMessage;
+import com.example.dlq.repository.DlqMessageRepository;
+import com.example.dlq.service.DlqRateTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DlqWriteBehindBufferTest {
+
+    private final DlqMessageRepository repository = mock(DlqMessageRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Integer> groupSizes = new ArrayList<>();
+    private DlqWriteBehindBuffer buffer;
+
+    @AfterEach
+    void stop() {
+        if (buffer != null) {
+            buffer.stop();
+        }
+    }
+
+    @Test
+    void testStoresInGroupsAndCompletesAfterStore() throws InterruptedException {
+        recordGroups();
+        buffer = buffer(100, 3, Duration.ofHours(1), Duration.ofMillis(10));
+        CountDownLatch stored = new CountDownLatch(6);
+        for (int i = 0; i < 6; i++) {
+            assertThat(buffer.offer(message(i), stored::countDown)).isTrue();
+        }
+
+        buffer.start();
+
+        assertThat(stored.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(groupSizes).containsExactly(3, 3);
+        assertThat(meterRegistry.get("dlq.buffer.flush").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void testFlushesPartialGroupAfterInterval() throws InterruptedException {
+        recordGroups();
+        buffer = buffer(100, 500, Duration.ofMillis(20), Duration.ofMillis(10));
+        buffer.start();
+        CountDownLatch stored = new CountDownLatch(2);
+
+        buffer.offer(message(1), stored::countDown);
+        buffer.offer(message(2), stored::countDown);
+
+        assertThat(stored.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(groupSizes).containsExactly(2);
+    }
+
+    @Test
+    void testRejectsWhenFullAndSignalsOnceDrained() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        when(repository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("database unavailable");
+            }
+            return invocation.<List<DlqMessage>>getArgument(0).size();
+        });
+        buffer = buffer(2, 1, Duration.ofMillis(1), Duration.ofMillis(50));
+        assertThat(buffer.offer(message(1), () -> { })).isTrue();
+        assertThat(buffer.offer(message(2), () -> { })).isTrue();
+        assertThat(buffer.offer(message(3), () -> { })).isFalse();
+        assertThat(meterRegistry.get("dlq.buffer.depth").gauge().value()).isEqualTo(2);
+
+        CountDownLatch drained = new CountDownLatch(1);
+        buffer.whenDrained(drained::countDown);
+        assertThat(drained.getCount()).isEqualTo(1);
+        buffer.start();
+
+        assertThat(drained.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(attempts.get()).isGreaterThanOrEqualTo(2);
+    }
+
+    private void recordGroups() {
+        when(repository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> {
+            List<DlqMessage> messages = invocation.getArgument(0);
+            synchronized (groupSizes) {
+                groupSizes.add(messages.size());
+            }
+            return messages.size();
+        });
+    }
+
+    private DlqWriteBehindBuffer buffer(int capacity, int flushSize, Duration flushInterval, Duration retryBackoff) {
+        return new DlqWriteBehindBuffer(repository, mock(DlqRateTracker.class),
+            mock(PlatformTransactionManager.class), meterRegistry,
+            capacity, flushSize, flushInterval, retryBackoff);
+    }
+
+    private static DlqMessage message(long offset) {
+        return new DlqMessage("key-" + offset, "{}", "orders.v1", 0, offset, 3, null, "error", null);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.dlq.consumer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyOrderedExecutorTest {
+
+    @Test
+    void testTasksOfTheSameKeyRunInSubmissionOrder() throws Exception {
+        KeyOrderedExecutor executor = new KeyOrderedExecutor(4, false);
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < 200; i++) {
+            String key = "order-" + (i % 7);
+            int sequence = i;
+            tasks.add(executor.submit(key, () ->
+                seen.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(sequence)));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        executor.destroy();
+
+        assertThat(seen).hasSize(7);
+        seen.values().forEach(sequences -> assertThat(sequences).isSorted());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.dlq.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffsetCommitTrackerTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("orders", 0);
+
+    @Test
+    void testCommitsOnlyUpToLowestIncompleteOffset() {
+        MockConsumer<String, String> consumer = assignedConsumer();
+        OffsetCommitTracker tracker = new OffsetCommitTracker("test", 1, Duration.ofHours(1));
+        List<ConsumerRecord<String, String>> records = records(10, 15);
+        records.forEach(tracker::register);
+
+        // Completions arrive out of order; 12 is still in flight
+        tracker.complete(records.get(3));
+        tracker.complete(records.get(0));
+        tracker.complete(records.get(1));
+        tracker.maybeCommit(consumer);
+        assertThat(committed(consumer)).isEqualTo(12);
+
+        tracker.complete(records.get(2));
+        tracker.complete(records.get(4));
+        tracker.maybeCommit(consumer);
+        assertThat(committed(consumer)).isEqualTo(15);
+        assertThat(tracker.getPendingCount()).isZero();
+    }
+
+    @Test
+    void testFailedSendRewindsAndHoldsCommit() {
+        MockConsumer<String, String> consumer = assignedConsumer();
+        OffsetCommitTracker tracker = new OffsetCommitTracker("test", 1, Duration.ofHours(1));
+        List<ConsumerRecord<String, String>> records = records(0, 3);
+        records.forEach(tracker::register);
+
+        tracker.complete(records.get(0));
+        tracker.fail(records.get(1));
+        tracker.complete(records.get(2));
+        consumer.seek(PARTITION, 3);
+        tracker.maybeCommit(consumer);
+
+        assertThat(committed(consumer)).isEqualTo(1);
+        assertThat(consumer.position(PARTITION)).isEqualTo(1);
+    }
+
+    private static MockConsumer<String, String> assignedConsumer() {
+        MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.assign(Set.of(PARTITION));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        return consumer;
+    }
+
+    private static List<ConsumerRecord<String, String>> records(long from, long to) {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        for (long offset = from; offset < to; offset++) {
+            records.add(new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, "key", "value"));
+        }
+        return records;
+    }
+
+    private static long committed(MockConsumer<String, String> consumer) {
+        OffsetAndMetadata committed = consumer.committed(Set.of(PARTITION)).get(PARTITION);
+        return committed == null ? -1 : committed.offset();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.dlq.delay;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testItemsExpireInDueOrderAcrossLevels() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, now);
+
+        // 4 x 10ms covers 40ms on the first level; later items land in overflow levels
+        wheel.schedule(now + 250, "third");
+        wheel.schedule(now + 20, "first");
+        wheel.schedule(now + 90, "second");
+        assertThat(wheel.size()).isEqualTo(3);
+
+        List<String> expired = new ArrayList<>();
+        long deadline = now + 2000;
+        while (expired.size() < 3 && System.currentTimeMillis() < deadline) {
+            wheel.advance(50, expired::add);
+        }
+
+        assertThat(expired).containsExactly("first", "second", "third");
+        assertThat(wheel.size()).isZero();
+        assertThat(System.currentTimeMillis()).isGreaterThanOrEqualTo(now + 240);
+    }
+
+    @Test
+    void testOverdueItemsAreEmittedImmediately() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, now);
+
+        wheel.schedule(now - 1000, "late");
+
+        List<String> expired = new ArrayList<>();
+        assertThat(wheel.advance(0, expired::add)).isEqualTo(1);
+        assertThat(expired).containsExactly("late");
+    }
+
+    @Test
+    void testJournalReplaysOnlyPendingRecords() throws Exception {
+        Path file = tempDir.resolve("delay.journal");
+
+        try (DelayJournal journal = new DelayJournal(file, false)) {
+            assertThat(journal.open()).isEmpty();
+            journal.append(new DelayedRecord(1, 1000, "orders", "k1", new byte[] {1, 2}, List.of()));
+            journal.append(new DelayedRecord(2, 2000, "orders", "k2", null, List.of()));
+            journal.remove(List.of(1L));
+        }
+
+        try (DelayJournal journal = new DelayJournal(file, false)) {
+            List<DelayedRecord> pending = journal.open();
+            assertThat(pending).hasSize(1);
+            assertThat(pending.get(0).id()).isEqualTo(2);
+            assertThat(pending.get(0).key()).isEqualTo("k2");
+            assertThat(pending.get(0).value()).isNull();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.dlq.job;
+
+import com.example.dlq.model.HeaderCodec;
+import com.example.dlq.model.ReplayRequest;
+import com.example.dlq.model.RetryHeaders;
+import com.example.dlq.service.RetryService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DlqReplayServiceTest {
+
+    private static final String DLQ_TOPIC = "orders.v1.dlq";
+
+    private final MockConsumer<String, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final RetryService retryService = mock(RetryService.class);
+    private final JobRunner jobRunner = new JobRunner(1);
+    private final List<ConsumerRecord<String, byte[]>> replayed = new ArrayList<>();
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        jobRunner.destroy();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReplaysMatchingRecordsWithinTheOffsetRange() throws InterruptedException {
+        ConsumerFactory<String, byte[]> consumerFactory = mock(ConsumerFactory.class);
+        when(consumerFactory.createConsumer(anyString(), any(), any(), any())).thenReturn(consumer);
+        when(retryService.replayFromDlq(any(), anyString())).thenAnswer(invocation -> {
+            replayed.add(invocation.getArgument(0));
+            return CompletableFuture.completedFuture(null);
+        });
+        TopicPartition partition = new TopicPartition(DLQ_TOPIC, 0);
+        consumer.updatePartitions(DLQ_TOPIC, List.of(new PartitionInfo(DLQ_TOPIC, 0, null, null, null),
+            new PartitionInfo(DLQ_TOPIC, 1, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(partition, 0L));
+        consumer.updateEndOffsets(Map.of(partition, 5L));
+        consumer.schedulePollTask(() -> {
+            for (long offset = 0; offset < 5; offset++) {
+                consumer.addRecord(record(offset, offset % 2 == 1 ? "Read timeout" : "invalid order"));
+            }
+        });
+
+        ReplayRequest request = new ReplayRequest();
+        request.setPartition(0);
+        request.setFromOffset(1L);
+        request.setToOffset(4L);
+        request.setHeaderContains(Map.of(RetryHeaders.LAST_ERROR, "timeout"));
+        Job job = new DlqReplayService(consumerFactory, retryService, jobRunner, DLQ_TOPIC, 500, 1000).submit(request);
+
+        awaitFinished(job);
+        assertThat(job.getStatus()).isEqualTo(Job.Status.COMPLETED);
+        assertThat(replayed).extracting(ConsumerRecord::offset).containsExactly(1L, 3L);
+        assertThat(job.getRead()).isEqualTo(3);
+        assertThat(job.getProcessed()).isEqualTo(2);
+        assertThat(consumer.assignment()).containsExactly(partition);
+        assertThat(consumer.closed()).isTrue();
+    }
+
+    @Test
+    void testRejectsOffsetRangeWithoutPartition() {
+        ReplayRequest request = new ReplayRequest();
+        request.setFromOffset(10L);
+
+        assertThatThrownBy(request::validate).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ConsumerRecord<String, byte[]> record(long offset, String lastError) {
+        ConsumerRecord<String, byte[]> record = new ConsumerRecord<>(DLQ_TOPIC, 0, offset, "order-" + offset, new byte[] {'{', '}'});
+        record.headers().add(RetryHeaders.LAST_ERROR, HeaderCodec.encodeString(lastError));
+        return record;
+    }
+
+    private static void awaitFinished(Job job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (job.getStatus() == Job.Status.RUNNING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.dlq.job;
+
+import com.example.dlq.config.RetentionProperties;
+import com.example.dlq.entity.DlqMessage;
+import com.example.dlq.repository.DlqMessageRepository;
+import com.example.dlq.service.DlqRateTracker;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+class RetentionPurgeServiceTest {
+
+    @Autowired
+    private DlqMessageRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path archiveDirectory;
+
+    @Test
+    void testPurgesByAgeAndCountInChunksAndArchivesPurgedRows() throws IOException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        List<DlqMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            messages.add(message("orders.v1", i, now.minus(Duration.ofDays(10)).plusSeconds(i)));
+        }
+        messages.add(message("orders.v1", 5, now.minusSeconds(60)));
+        for (int i = 0; i < 4; i++) {
+            messages.add(message("payments.v1", i, now.minusSeconds(60 - i)));
+        }
+        repository.insertIgnoringDuplicates(messages);
+
+        RetentionProperties properties = new RetentionProperties();
+        properties.setChunkSize(2);
+        properties.getArchive().setEnabled(true);
+        properties.getArchive().setDirectory(archiveDirectory.toString());
+        RetentionProperties.Policy payments = new RetentionProperties.Policy();
+        payments.setMaxRows(2L);
+        properties.getTopics().put("payments.v1", payments);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RetentionPurgeService service = new RetentionPurgeService(repository, mock(DlqRateTracker.class),
+            new JobRunner(1), properties, JsonMapper.builder().findAndAddModules().build(), transactionManager,
+            meterRegistry);
+
+        Job job = new Job("test", RetentionPurgeService.JOB_TYPE, properties);
+        service.purge(job);
+
+        assertThat(repository.findAll()).extracting(DlqMessage::getOriginalTopic, DlqMessage::getOriginalOffset)
+            .containsExactlyInAnyOrder(tuple("orders.v1", 5L),
+                tuple("payments.v1", 2L),
+                tuple("payments.v1", 3L));
+        assertThat(job.getProcessed()).isEqualTo(7);
+        assertThat(meterRegistry.get("dlq.retention.purged").tag("topic", "orders.v1").counter().count()).isEqualTo(5);
+        assertThat(meterRegistry.get("dlq.retention.purge").timer().count()).isEqualTo(4);
+        assertThat(archivedLines()).hasSize(7).allSatisfy(line -> assertThat(line).contains("\"messageKey\""));
+    }
+
+    private List<String> archivedLines() throws IOException {
+        try (Stream<Path> files = Files.list(archiveDirectory)) {
+            Path archive = files.findFirst().orElseThrow();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(archive)), StandardCharsets.UTF_8))) {
+                return reader.lines().toList();
+            }
+        }
+    }
+
+    private static DlqMessage message(String topic, long offset, Instant createdAt) {
+        DlqMessage message = new DlqMessage("order-" + offset, "{}", topic, 0, offset, 3, createdAt, "boom", null);
+        message.setCreatedAt(createdAt);
+        return message;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.dlq.model;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeaderCodecTest {
+
+    @Test
+    void testBinaryValuesRoundTrip() {
+        Instant nextAt = Instant.parse("2024-05-01T10:15:30.123Z");
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(RetryHeaders.RETRY_COUNT, HeaderCodec.encodeInt(2));
+        headers.add(RetryHeaders.ORIGINAL_PARTITION, HeaderCodec.encodeInt(-1));
+        headers.add(RetryHeaders.ORIGINAL_OFFSET, HeaderCodec.encodeLong(9_876_543_210L));
+        headers.add(RetryHeaders.NEXT_AT, HeaderCodec.encodeInstant(nextAt));
+        headers.add(RetryHeaders.RETRY_DELAY_MS, HeaderCodec.encodeLong(30_000));
+
+        assertThat(RetryHeaders.getRetryCount(headers)).isEqualTo(2);
+        assertThat(RetryHeaders.getOriginalPartition(headers)).isEqualTo(-1);
+        assertThat(RetryHeaders.getOriginalOffset(headers)).isEqualTo(9_876_543_210L);
+        assertThat(RetryHeaders.getNextAt(headers)).isEqualTo(nextAt);
+        assertThat(RetryHeaders.getRetryDelay(headers)).isEqualTo(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void testLegacyStringHeadersAreStillDecoded() {
+        Instant nextAt = Instant.parse("2024-05-01T10:15:30.123Z");
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(RetryHeaders.RETRY_COUNT, "3".getBytes());
+        headers.add(RetryHeaders.ORIGINAL_OFFSET, "-42".getBytes());
+        headers.add(RetryHeaders.NEXT_AT, nextAt.toString().getBytes());
+        headers.add(RetryHeaders.RETRY_DELAY_MS, "not-a-number".getBytes());
+
+        assertThat(RetryHeaders.getRetryCount(headers)).isEqualTo(3);
+        assertThat(RetryHeaders.getOriginalOffset(headers)).isEqualTo(-42);
+        assertThat(RetryHeaders.getNextAt(headers)).isEqualTo(nextAt);
+        assertThat(RetryHeaders.getRetryDelay(headers)).isNull();
+        assertThat(RetryHeaders.getOriginalPartition(headers)).isEqualTo(-1);
+        assertThat(HeaderCodec.decodeLong("99999999999999999999".getBytes(), -1)).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.dlq.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderEventCodecTest {
+
+    @Test
+    void testRoundTrip() {
+        OrderEvent event = new OrderEvent("3f0c2a8e-7d1b-4c55-9e2f-0a6b8d4e1c77", "customer-42",
+            OrderStatus.CANCELLED, Instant.ofEpochMilli(1_714_558_530_123L), "SKU-Ü1", -3, 129.95);
+
+        OrderEvent decoded = OrderEventCodec.decode(OrderEventCodec.encode(event));
+
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(event);
+    }
+
+    @Test
+    void testNullFieldsAreOmitted() {
+        OrderEvent event = new OrderEvent("order-1", null, null, null, null, null, null);
+
+        byte[] encoded = OrderEventCodec.encode(event);
+
+        assertThat(encoded).hasSize(2 + 1 + "order-1".length());
+        assertThat(OrderEventCodec.decode(encoded)).usingRecursiveComparison().isEqualTo(event);
+    }
+
+    @Test
+    void testSmallerThanJson() throws Exception {
+        OrderEvent event = OrderEvent.create("customer-42", "product-7", 2, 59.90);
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+        assertThat(OrderEventCodec.encode(event).length)
+            .isLessThan(objectMapper.writeValueAsBytes(event).length / 2);
+    }
+
+    @Test
+    void testMalformedInputIsRejected() {
+        byte[] encoded = OrderEventCodec.encode(OrderEvent.create("customer-42", "product-7", 2, 59.90));
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 3);
+
+        assertThatThrownBy(() -> OrderEventCodec.decode(truncated)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> OrderEventCodec.decode("{\"orderId\":1}".getBytes()))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
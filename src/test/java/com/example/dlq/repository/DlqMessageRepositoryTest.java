@@ -0,0 +1,204 @@
+package com.example.dlq.repository;
+
+import com.example.dlq.entity.DlqMessage;
+import com.example.dlq.entity.DlqRollup;
+import com.example.dlq.entity.StackTrace;
+import com.example.dlq.model.DlqErrorGroup;
+import com.example.dlq.model.CursorPage;
+import com.example.dlq.model.DlqMessageSummary;
+import com.example.dlq.model.RequeueFilter;
+import com.example.dlq.service.DlqService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest
+class DlqMessageRepositoryTest {
+
+    @Autowired
+    private DlqMessageRepository repository;
+
+    @Autowired
+    private DlqRollupRepository rollupRepository;
+
+    @Autowired
+    private StackTraceRepository stackTraceRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void testBatchInsertSkipsMessagesAlreadyStored() {
+        Instant firstSeen = Instant.parse("2024-05-01T10:15:30.123456Z");
+        assertThat(repository.insertIgnoringDuplicates(List.of(
+            message("orders.v1", 0, 10, firstSeen), message("orders.v1", 1, 10, firstSeen)))).isEqualTo(2);
+
+        // Redelivered batch, with a duplicate inside the batch itself
+        assertThat(repository.insertIgnoringDuplicates(List.of(
+            message("orders.v1", 0, 10, firstSeen), message("orders.v1", 0, 11, firstSeen),
+            message("orders.v1", 0, 11, firstSeen)))).isEqualTo(1);
+
+        List<DlqMessage> stored = repository.findAll();
+        assertThat(stored).hasSize(3);
+        assertThat(stored).extracting(DlqMessage::getId).doesNotHaveDuplicates();
+        assertThat(stored.get(0).getFirstSeenTs()).isEqualTo(firstSeen);
+    }
+
+    @Test
+    void testStackTraceInsertIgnoresKnownFingerprint() {
+        Instant firstSeen = Instant.parse("2024-05-01T10:15:30Z");
+        assertThat(stackTraceRepository.insertIgnoringDuplicate("0123456789abcdef",
+            "java.lang.IllegalStateException", "trace", firstSeen)).isEqualTo(1);
+        assertThat(stackTraceRepository.insertIgnoringDuplicate("0123456789abcdef",
+            "java.lang.IllegalStateException", "other trace", Instant.now())).isZero();
+
+        StackTrace stored = stackTraceRepository.findById("0123456789abcdef").orElseThrow();
+        assertThat(stored.getTrace()).isEqualTo("trace");
+        assertThat(stored.getFirstSeenAt()).isEqualTo(firstSeen);
+    }
+
+    @Test
+    void testJdbcAndHibernateIdsDoNotCollide() {
+        repository.insertIgnoringDuplicates(List.of(message("orders.v1", 0, 1, Instant.now())));
+        DlqMessage saved = repository.saveAndFlush(message("orders.v1", 0, 2, Instant.now()));
+        repository.insertIgnoringDuplicates(List.of(message("orders.v1", 0, 3, Instant.now())));
+
+        assertThat(repository.findAll()).hasSize(3)
+            .extracting(DlqMessage::getId).doesNotHaveDuplicates().contains(saved.getId());
+    }
+
+    @Test
+    void testCursorPagingWalksBothWaysAcrossEqualTimestamps() {
+        Instant createdAt = Instant.parse("2024-05-01T10:00:00Z");
+        for (int offset = 0; offset < 5; offset++) {
+            DlqMessage message = message("orders.v1", 0, offset, createdAt);
+            // Offsets 1 and 2 share a timestamp, so only the id orders them
+            message.setCreatedAt(createdAt.plusSeconds(Math.max(offset, 1)));
+            repository.insertIgnoringDuplicates(List.of(message));
+        }
+        DlqService dlqService = new DlqService(repository, null, null, null, null);
+
+        CursorPage<DlqMessageSummary> first = dlqService.getDlqMessages(null, null, 2);
+        CursorPage<DlqMessageSummary> second = dlqService.getDlqMessages(first.getNextCursor(), null, 2);
+        CursorPage<DlqMessageSummary> last = dlqService.getDlqMessages(second.getNextCursor(), null, 2);
+
+        assertThat(offsets(first)).containsExactly(4L, 3L);
+        assertThat(first.getPrevCursor()).isNull();
+        assertThat(offsets(second)).containsExactly(2L, 1L);
+        assertThat(offsets(last)).containsExactly(0L);
+        assertThat(last.getNextCursor()).isNull();
+
+        CursorPage<DlqMessageSummary> back = dlqService.getDlqMessages(null, last.getPrevCursor(), 2);
+        assertThat(offsets(back)).containsExactly(2L, 1L);
+        assertThat(dlqService.getDlqMessages(null, back.getPrevCursor(), 2).getPrevCursor()).isNull();
+    }
+
+    @Test
+    void testSummariesCarryAnErrorPreviewInsteadOfTextColumns() {
+        DlqMessage message = message("orders.v1", 0, 7, Instant.now());
+        message.setLastError("x".repeat(5000));
+        repository.insertIgnoringDuplicates(List.of(message));
+
+        List<DlqMessageSummary> summaries = repository.findByMessageKey("order-7");
+
+        assertThat(summaries).singleElement().satisfies(summary -> {
+            assertThat(summary.getErrorPreview()).hasSize(DlqMessageSummary.ERROR_PREVIEW_LENGTH);
+            assertThat(summary.getOriginalOffset()).isEqualTo(7);
+            assertThat(summary.getStackTraceFingerprint()).isEqualTo("0123456789abcdef");
+        });
+    }
+
+    @Test
+    void testRollupCountsInsertedMessagesPerTopicErrorAndHour() {
+        Instant hour = Instant.parse("2024-05-01T10:00:00Z");
+        stackTraceRepository.save(new StackTrace("0123456789abcdef", "java.lang.IllegalStateException", "trace"));
+        DlqMessage first = created(message("orders.v1", 0, 1, hour), hour.plusSeconds(60));
+        DlqMessage second = created(message("orders.v1", 0, 2, hour), hour.plusSeconds(600));
+        DlqMessage nextHour = created(message("orders.v1", 0, 3, hour), hour.plusSeconds(3700));
+        DlqMessage otherTopic = created(message("payments.v1", 0, 1, hour), hour.plusSeconds(60));
+        otherTopic.setStackTraceFingerprint(null);
+        repository.insertIgnoringDuplicates(List.of(first, second, nextHour, otherTopic));
+        // Redelivered duplicate is not counted again
+        repository.insertIgnoringDuplicates(List.of(created(message("orders.v1", 0, 1, hour), hour)));
+
+        DlqRollup rollup = rollupRepository.findById(new DlqRollup.Key("orders.v1", "0123456789abcdef", hour)).orElseThrow();
+        assertThat(rollup.getMessageCount()).isEqualTo(2);
+        assertThat(rollup.getFirstSeen()).isEqualTo(hour.plusSeconds(60));
+        assertThat(rollup.getLastSeen()).isEqualTo(hour.plusSeconds(600));
+        assertThat(rollup.getTotalBytes()).isEqualTo(4);
+
+        List<DlqErrorGroup> groups = rollupRepository.findErrorGroupsSince(hour);
+        assertThat(groups).extracting(DlqErrorGroup::getOriginalTopic, DlqErrorGroup::getExceptionClass,
+                DlqErrorGroup::getMessageCount)
+            .containsExactly(tuple("orders.v1", "java.lang.IllegalStateException", 3L),
+                tuple("payments.v1", null, 1L));
+
+        repository.removeFromRollup(List.of(first));
+        repository.removeFromRollup(List.of(second));
+        entityManager.clear();
+        assertThat(rollupRepository.findById(rollup.getKey())).isEmpty();
+        assertThat(rollupRepository.findHourlySince(hour, "orders.v1"))
+            .singleElement().extracting(DlqRollup::getMessageCount).isEqualTo(1L);
+    }
+
+    @Test
+    void testStreamsFilteredRequeueableMessagesAndMarksThemInBatch() {
+        Instant hour = Instant.parse("2024-05-01T10:00:00Z");
+        DlqMessage timeout = created(message("orders.v1", 0, 1, hour), hour.plusSeconds(10));
+        timeout.setLastError("Downstream 100%_timeout");
+        DlqMessage otherError = created(message("orders.v1", 0, 2, hour), hour.plusSeconds(20));
+        DlqMessage otherTopic = created(message("payments.v1", 0, 3, hour), hour.plusSeconds(30));
+        otherTopic.setLastError("Downstream 100%_timeout");
+        DlqMessage exhausted = created(message("orders.v1", 0, 4, hour), hour.plusSeconds(40));
+        exhausted.setLastError("Downstream 100%_timeout");
+        exhausted.setRequeuedCount(DlqMessage.MAX_REQUEUES);
+        DlqMessage later = created(message("orders.v1", 0, 5, hour), hour.plusSeconds(3600));
+        later.setLastError("Downstream 100%_timeout");
+        repository.insertIgnoringDuplicates(List.of(timeout, otherError, otherTopic, exhausted, later));
+
+        RequeueFilter filter = new RequeueFilter();
+        filter.setTo(hour.plusSeconds(3600));
+        filter.setOriginalTopic("orders.v1");
+        // LIKE wildcards in the pattern match literally
+        filter.setErrorPattern("100%_time");
+        filter.setKeyPrefix("order-");
+        List<DlqMessage> matched = new ArrayList<>();
+        repository.streamRequeueable(filter, DlqMessage.MAX_REQUEUES, 2, matched::add);
+
+        assertThat(matched).extracting(DlqMessage::getMessageKey).containsExactly("order-1");
+        assertThat(matched.get(0).getCreatedAt()).isEqualTo(hour.plusSeconds(10));
+
+        assertThat(repository.markRequeued(matched, "ops", hour, DlqMessage.MAX_REQUEUES)).hasSize(1);
+        entityManager.clear();
+        DlqMessage requeued = repository.findById(matched.get(0).getId()).orElseThrow();
+        assertThat(requeued.getRequeuedCount()).isEqualTo(1);
+        assertThat(requeued.getRequeuedBy()).isEqualTo("ops");
+        assertThat(rollupRepository.findHourlySince(hour, "orders.v1"))
+            .extracting(DlqRollup::getMessageCount).containsExactly(2L, 1L);
+    }
+
+    private static DlqMessage created(DlqMessage message, Instant createdAt) {
+        message.setCreatedAt(createdAt);
+        return message;
+    }
+
+    private static List<Long> offsets(CursorPage<DlqMessageSummary> page) {
+        return page.getContent().stream().map(DlqMessageSummary::getOriginalOffset).toList();
+    }
+
+    private static DlqMessage message(String topic, int partition, long offset, Instant firstSeen) {
+        DlqMessage message = new DlqMessage("order-" + offset, "{}", topic, partition, offset,
+            3, firstSeen.truncatedTo(ChronoUnit.MICROS), "boom", null);
+        message.setStackTraceFingerprint("0123456789abcdef");
+        return message;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.dlq.service;
+
+import com.example.dlq.config.CircuitBreakerProperties;
+import com.example.dlq.exception.ErrorType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DownstreamCircuitBreakerTest {
+
+    @Test
+    void testOpensOnTransientFailuresAndClosesAfterProbes() throws InterruptedException {
+        CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setSlidingWindowSize(10);
+        properties.setMinimumCalls(4);
+        properties.setFailureRateThreshold(50);
+        properties.setWaitDurationInOpenState(Duration.ofMillis(50));
+        properties.setPermittedCallsInHalfOpenState(2);
+        DownstreamCircuitBreaker breaker = new DownstreamCircuitBreaker(properties);
+
+        // Permanent errors mean the downstream answered and do not open the breaker
+        for (int i = 0; i < 4; i++) {
+            assertThat(breaker.tryAcquirePermission()).isTrue();
+            breaker.onError(ErrorType.PERMANENT);
+        }
+        assertThat(breaker.getState()).isEqualTo(DownstreamCircuitBreaker.State.CLOSED);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(breaker.tryAcquirePermission()).isTrue();
+            breaker.onError(ErrorType.TRANSIENT);
+        }
+        assertThat(breaker.getState()).isEqualTo(DownstreamCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        Thread.sleep(60);
+
+        // Half-open: only the permitted probes get through
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        assertThat(breaker.getState()).isEqualTo(DownstreamCircuitBreaker.State.HALF_OPEN);
+
+        breaker.onSuccess();
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(DownstreamCircuitBreaker.State.CLOSED);
+    }
+}
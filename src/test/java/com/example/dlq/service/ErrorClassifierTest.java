@@ -0,0 +1,50 @@
+package com.example.dlq.service;
+
+import com.example.dlq.config.RetryProperties;
+import com.example.dlq.exception.ErrorType;
+import com.example.dlq.exception.OrderProcessingException;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ErrorClassifierTest {
+
+    private final ErrorClassifier classifier = new ErrorClassifier(new RetryProperties());
+
+    @Test
+    void testTypesAndKeywords() {
+        assertThat(classifier.classifyError(new SocketTimeoutException("invalid response"))).isEqualTo(ErrorType.TRANSIENT);
+        assertThat(classifier.classifyError(new IllegalArgumentException("boom"))).isEqualTo(ErrorType.PERMANENT);
+        assertThat(classifier.classifyError(new RuntimeException("Customer NOT FOUND: 42"))).isEqualTo(ErrorType.PERMANENT);
+        assertThat(classifier.classifyError(new RuntimeException("line 1\nschema mismatch"))).isEqualTo(ErrorType.PERMANENT);
+        assertThat(classifier.classifyError(new RuntimeException("connection reset"))).isEqualTo(ErrorType.TRANSIENT);
+        assertThat(classifier.classifyError(null)).isEqualTo(ErrorType.TRANSIENT);
+    }
+
+    @Test
+    void testCauseChainIsWalkedUntilAVerdict() {
+        OrderProcessingException permanent = new OrderProcessingException("Rejected", ErrorType.PERMANENT, "order-1");
+        assertThat(classifier.classifyError(new RuntimeException("wrapped", permanent))).isEqualTo(ErrorType.PERMANENT);
+
+        // The outer exception decides before its cause
+        RuntimeException transientOuter = new UncheckedIOException(new SocketTimeoutException("read timed out"));
+        assertThat(classifier.classifyError(new IllegalStateException("invalid", transientOuter))).isEqualTo(ErrorType.PERMANENT);
+        assertThat(classifier.classifyError(new RuntimeException("failed", transientOuter))).isEqualTo(ErrorType.TRANSIENT);
+    }
+
+    @Test
+    void testKeywordMatcherFindsOverlappingKeywords() {
+        KeywordMatcher matcher = KeywordMatcher.of(List.of("he", "she", "hers", "Straße"));
+
+        assertThat(matcher.containsAny("usher")).isTrue();
+        assertThat(matcher.containsAny("sHHERS")).isTrue();
+        assertThat(matcher.containsAny("STRASSE")).isFalse();
+        assertThat(matcher.containsAny("hauptstraße 1")).isTrue();
+        assertThat(matcher.containsAny("shx")).isFalse();
+        assertThat(KeywordMatcher.of(List.of()).containsAny("anything")).isFalse();
+    }
+}
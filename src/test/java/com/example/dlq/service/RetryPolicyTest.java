@@ -0,0 +1,53 @@
+package com.example.dlq.service;
+
+import com.example.dlq.config.RetryProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryPolicyTest {
+
+    @Test
+    void testTiersAndTopicsAreDerivedFromDelays() {
+        RetryProperties properties = new RetryProperties();
+        properties.setMaxAttempts(4);
+        properties.setDelays(List.of(Duration.ofSeconds(5), Duration.ofMinutes(5), Duration.ofHours(2)));
+
+        RetryPolicy policy = new RetryPolicy(properties, "orders.v1");
+
+        assertThat(policy.topicNames())
+            .containsExactly("orders.v1.retry.5s", "orders.v1.retry.5m", "orders.v1.retry.2h");
+        assertThat(policy.nextTier(0).topic()).isEqualTo("orders.v1.retry.5s");
+        assertThat(policy.nextTier(2).topic()).isEqualTo("orders.v1.retry.2h");
+        // Attempts beyond the ladder reuse the last tier
+        assertThat(policy.nextTier(3).topic()).isEqualTo("orders.v1.retry.2h");
+        assertThat(policy.nextTier(4)).isNull();
+        assertThat(policy.tierForTopic("orders.v1.retry.5m").delay()).isEqualTo(Duration.ofMinutes(5));
+    }
+
+    @Test
+    void testJitterStaysWithinBounds() {
+        RetryProperties properties = new RetryProperties();
+        properties.setDelays(List.of(Duration.ofSeconds(10)));
+        properties.setMaxDelay(Duration.ofSeconds(20));
+        RetryPolicy policy = new RetryPolicy(properties, "orders.v1");
+        RetryPolicy.Tier tier = policy.nextTier(0);
+
+        properties.setJitter(RetryProperties.Jitter.FULL);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(policy.delayFor(tier, null)).isBetween(Duration.ZERO, Duration.ofSeconds(10));
+        }
+
+        properties.setJitter(RetryProperties.Jitter.DECORRELATED);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(policy.delayFor(tier, Duration.ofSeconds(30)))
+                .isBetween(Duration.ofSeconds(10), Duration.ofSeconds(20));
+        }
+
+        properties.setJitter(RetryProperties.Jitter.NONE);
+        assertThat(policy.delayFor(tier, Duration.ofSeconds(30))).isEqualTo(Duration.ofSeconds(10));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.dlq.service;
+
+import com.example.dlq.config.RetryProperties;
+import com.example.dlq.model.HeaderCodec;
+import com.example.dlq.model.RetryHeaders;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RetryServiceTest {
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testForwardsPayloadAndHeadersAsReceived() {
+        RetryService retryService = retryService();
+        byte[] payload = "{\"orderId\":\"order-1\"}".getBytes(StandardCharsets.UTF_8);
+        ConsumerRecord<String, byte[]> source = new ConsumerRecord<>("orders.v1.retry.5s", 2, 42L, "order-1", payload);
+        source.headers().add("traceparent", "00-abc-01".getBytes(StandardCharsets.UTF_8));
+        source.headers().add(RetryHeaders.RETRY_COUNT, HeaderCodec.encodeInt(1));
+        source.headers().add(RetryHeaders.ORIGINAL_TOPIC, HeaderCodec.encodeString("orders.v1"));
+        source.headers().add(RetryHeaders.ORIGINAL_PARTITION, HeaderCodec.encodeInt(0));
+        source.headers().add(RetryHeaders.ORIGINAL_OFFSET, HeaderCodec.encodeLong(7L));
+        source.headers().add(RetryHeaders.NEXT_AT, HeaderCodec.encodeLong(0L));
+
+        retryService.sendToRetry(source, 1, new RuntimeException("downstream unavailable"), Duration.ofSeconds(5));
+
+        ArgumentCaptor<ProducerRecord<String, byte[]>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(sent.capture());
+        ProducerRecord<String, byte[]> record = sent.getValue();
+        Headers headers = record.headers();
+
+        assertThat(record.topic()).isEqualTo("orders.v1.retry.30s");
+        assertThat(record.value()).isSameAs(payload);
+        assertThat(headers.lastHeader("traceparent").value()).isEqualTo("00-abc-01".getBytes(StandardCharsets.UTF_8));
+        assertThat(headers.headers(RetryHeaders.RETRY_COUNT)).hasSize(1);
+        assertThat(headers.headers(RetryHeaders.NEXT_AT)).hasSize(1);
+        assertThat(RetryHeaders.getRetryCount(headers)).isEqualTo(2);
+        // The first hop's origin is kept, not replaced by the retry topic
+        assertThat(RetryHeaders.getOriginalTopic(headers)).isEqualTo("orders.v1");
+        assertThat(RetryHeaders.getOriginalOffset(headers)).isEqualTo(7L);
+        assertThat(RetryHeaders.getStacktraceFingerprint(headers)).isEqualTo("0123456789abcdef");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFirstHopRecordsItsOrigin() {
+        RetryService retryService = retryService();
+        ConsumerRecord<String, byte[]> source = new ConsumerRecord<>("orders.v1", 1, 10L, "order-2", new byte[] {'{', '}'});
+
+        retryService.sendToDlq(source, 0, new IllegalArgumentException("invalid"));
+
+        ArgumentCaptor<ProducerRecord<String, byte[]>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(sent.capture());
+        Headers headers = sent.getValue().headers();
+        assertThat(sent.getValue().topic()).isEqualTo("orders.v1.dlq");
+        assertThat(RetryHeaders.getOriginalTopic(headers)).isEqualTo("orders.v1");
+        assertThat(RetryHeaders.getOriginalPartition(headers)).isEqualTo(1);
+        assertThat(RetryHeaders.getOriginalOffset(headers)).isEqualTo(10L);
+        assertThat(headers.lastHeader(RetryHeaders.FIRST_SEEN_TS)).isNotNull();
+    }
+
+    @SuppressWarnings("unchecked")
+    private RetryService retryService() {
+        RetryProperties properties = new RetryProperties();
+        properties.setJitter(RetryProperties.Jitter.NONE);
+        StackTraceFingerprinter fingerprinter = mock(StackTraceFingerprinter.class);
+        when(fingerprinter.fingerprint(any(Throwable.class))).thenReturn("0123456789abcdef");
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(new CompletableFuture<>());
+
+        RetryService retryService = new RetryService(kafkaTemplate, new ObjectMapper(),
+            new ErrorClassifier(properties), new MetricsService(new SimpleMeterRegistry()),
+            new RetryPolicy(properties, "orders.v1"), new RetryBudget(properties),
+            mock(ObjectProvider.class), properties, fingerprinter);
+        ReflectionTestUtils.setField(retryService, "mainTopic", "orders.v1");
+        ReflectionTestUtils.setField(retryService, "dlqTopic", "orders.v1.dlq");
+        ReflectionTestUtils.setField(retryService, "delayWheelMinDelay", Duration.ofMinutes(1));
+        return retryService;
+    }
+}
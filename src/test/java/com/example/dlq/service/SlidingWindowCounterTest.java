@@ -0,0 +1,54 @@
+package com.example.dlq.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlidingWindowCounterTest {
+
+    private static final long T0 = 1_714_557_600_000L;
+
+    @Test
+    void testSumsOnlyUnitsInsideTheWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofSeconds(1), 120);
+        counter.add(T0, 2);
+        counter.add(T0 + 999, 1);
+        counter.add(T0 + 30_000, 4);
+
+        assertThat(counter.sum(T0 + 30_500, 60)).isEqualTo(7);
+        assertThat(counter.sum(T0 + 30_500, 30)).isEqualTo(4);
+        assertThat(counter.sum(T0 + 60_000, 60)).isEqualTo(4);
+        assertThat(counter.sum(T0 + 95_000, 60)).isZero();
+    }
+
+    @Test
+    void testReusedBucketDropsTheOlderUnit() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofSeconds(1), 10);
+        counter.add(T0, 5);
+        counter.add(T0 + 10_000, 1);
+        // Late event for a unit whose bucket has already moved on
+        counter.add(T0 + 1, 3);
+
+        assertThat(counter.sum(T0 + 10_000, 10)).isEqualTo(1);
+        assertThatThrownBy(() -> counter.sum(T0, 11)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testConcurrentAddsAreNotLost() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofMinutes(1), 1440);
+        CompletableFuture.allOf(IntStream.range(0, 8)
+            .mapToObj(thread -> CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    counter.add(T0 + i * 10L, 1);
+                }
+            }))
+            .toArray(CompletableFuture[]::new)).join();
+
+        assertThat(counter.sum(T0 + 100_000, 60)).isEqualTo(80_000);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.dlq.service;
+
+import com.example.dlq.repository.StackTraceRepository;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StackTraceFingerprinterTest {
+
+    @Test
+    void testSameSiteYieldsSameFingerprintAndIsStoredOnce() {
+        StackTraceRepository repository = mock(StackTraceRepository.class);
+        StackTraceFingerprinter fingerprinter = new StackTraceFingerprinter(repository, Runnable::run);
+
+        String first = fingerprinter.fingerprint(fail("order 1 rejected"));
+        String second = fingerprinter.fingerprint(fail("order 2 rejected"));
+
+        assertThat(first).hasSize(16).isEqualTo(second);
+        verify(repository, times(1)).insertIgnoringDuplicate(eq(first), anyString(), anyString(), any());
+    }
+
+    @Test
+    void testFailedWriteIsRetriedOnNextOccurrence() {
+        StackTraceRepository repository = mock(StackTraceRepository.class);
+        when(repository.insertIgnoringDuplicate(anyString(), anyString(), anyString(), any()))
+            .thenThrow(new IllegalStateException("database down"))
+            .thenReturn(1);
+        StackTraceFingerprinter fingerprinter = new StackTraceFingerprinter(repository, Runnable::run);
+
+        fingerprinter.fingerprint(fail("order 1 rejected"));
+        fingerprinter.fingerprint(fail("order 2 rejected"));
+        fingerprinter.fingerprint(fail("order 3 rejected"));
+
+        verify(repository, times(2)).insertIgnoringDuplicate(anyString(), anyString(), anyString(), any());
+    }
+
+    @Test
+    void testDifferentSitesYieldDifferentFingerprints() {
+        StackTraceRepository repository = mock(StackTraceRepository.class);
+        StackTraceFingerprinter fingerprinter = new StackTraceFingerprinter(repository, Runnable::run);
+
+        assertThat(fingerprinter.fingerprint(fail("rejected")))
+            .isNotEqualTo(fingerprinter.fingerprint(failElsewhere("rejected")));
+        assertThat(StackTraceFingerprinter.hash(new IllegalStateException("x", fail("cause"))))
+            .isNotEqualTo(StackTraceFingerprinter.hash(fail("cause")));
+    }
+
+    @Test
+    void testRenderIncludesCauseChain() {
+        String trace = StackTraceFingerprinter.render(new IllegalStateException("outer", fail("inner")));
+
+        assertThat(trace)
+            .startsWith(IllegalStateException.class.getName())
+            .contains("Caused by: " + IllegalArgumentException.class.getName())
+            .contains("\tat " + StackTraceFingerprinterTest.class.getName() + ".fail");
+    }
+
+    private static IllegalArgumentException fail(String message) {
+        return new IllegalArgumentException(message);
+    }
+
+    private static IllegalArgumentException failElsewhere(String message) {
+        return new IllegalArgumentException(message);
+    }
+}